@@ -0,0 +1,36 @@
+package com.studentmanagement.system.config;
+
+import com.mongodb.client.result.UpdateResult;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fee summaries written before @Version was introduced have no version field.
+ * Spring Data would treat them as new and try to insert them, so give them one.
+ */
+@Component
+@RequiredArgsConstructor
+public class FeeSummaryVersionInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initVersions() {
+        UpdateResult result = mongoTemplate.updateMulti(
+                new Query(Criteria.where("version").exists(false)),
+                new Update().set("version", 0L),
+                StudentFeeSummary.class
+        );
+        if (result.getModifiedCount() > 0) {
+            AppLogger.info("Initialized version on " + result.getModifiedCount() + " fee summaries");
+        }
+    }
+}
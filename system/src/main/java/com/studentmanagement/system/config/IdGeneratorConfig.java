@@ -0,0 +1,44 @@
+package com.studentmanagement.system.config;
+
+import com.studentmanagement.system.service.NodeIdLeaseService;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.IdGenerator;
+import com.studentmanagement.system.util.SnowflakeIdGenerator;
+import com.studentmanagement.system.util.UuidIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Selects the ID generator for payment IDs with ids.generator: snowflake
+ * (default, time-ordered, needs a distinct node ID per node) or uuid.
+ * Without ids.node-id the node ID is leased from MongoDB, since a derived one
+ * can collide and a duplicate payment ID is only caught after the fee summary
+ * has been credited.
+ * The snowflake generator always exists, because the payment ledger orders
+ * its entries by time-ordered IDs whichever generator payments use.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(@Value("${ids.node-id:#{null}}") Integer nodeId,
+                                                     NodeIdLeaseService nodeIdLeaseService) {
+        // Integer rather than int: an empty ids.node-id in YAML arrives as "", which converts to null
+        if (nodeId == null || nodeId < 0) {
+            nodeId = nodeIdLeaseService.acquire();
+            AppLogger.info("ids.node-id is not set; leased node ID " + nodeId);
+        }
+        AppLogger.info("Snowflake ID generator using node ID " + nodeId);
+        return new SnowflakeIdGenerator(nodeId);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "ids.generator", havingValue = "uuid")
+    public IdGenerator uuidIdGenerator() {
+        return new UuidIdGenerator();
+    }
+}
@@ -0,0 +1,68 @@
+package com.studentmanagement.system.config;
+
+import com.studentmanagement.system.dto.QueryPlanReport;
+import com.studentmanagement.system.model.*;
+import com.studentmanagement.system.service.IndexReportService;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Ensures the indexes declared on the @Document models exist at startup
+ * and warns about repository queries that still fall back to a COLLSCAN.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+            Students.class,
+            Teacher.class,
+            User.class,
+            Payment.class,
+            FeeStructure.class,
+            StudentFeeSummary.class,
+            IdempotencyRecord.class,
+            RevenueRollup.class,
+            LedgerEntry.class
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+    private final IndexReportService indexReportService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+
+        for (Class<?> documentType : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(documentType);
+            for (IndexDefinition index : resolver.resolveIndexFor(documentType)) {
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (Exception e) {
+                    // Existing duplicate data must not stop the application from starting
+                    AppLogger.error("Failed to ensure index " + index.getIndexKeys()
+                            + " on " + documentType.getSimpleName() + ": " + e.getMessage());
+                }
+            }
+        }
+        AppLogger.info("Mongo indexes ensured for " + INDEXED_DOCUMENTS.size() + " collections");
+
+        for (QueryPlanReport report : indexReportService.getQueryPlanReport()) {
+            if (report.isCollectionScan()) {
+                AppLogger.warn("Query falls back to COLLSCAN: " + report.getQuery());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.studentmanagement.system.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled maintenance jobs, run on Spring Boot's auto-configured scheduler.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
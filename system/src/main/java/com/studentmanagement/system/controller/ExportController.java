@@ -0,0 +1,100 @@
+package com.studentmanagement.system.controller;
+
+import com.studentmanagement.system.service.ExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class ExportController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_GZIP = new MediaType("application", "gzip");
+
+    private final ExportService exportService;
+
+    /**
+     * Export students, payments or fee summaries as CSV or NDJSON (ADMIN only)
+     * Rows are streamed from a database cursor, so exports of any size run in constant memory.
+     * from/to (inclusive) filter enrollmentDate, paymentDate or lastPaymentDate respectively.
+     * GET /api/export/{students|payments|fee-summaries}?format=csv|ndjson&gzip=true&className=&from=2025-01-01&to=2025-01-31
+     */
+    @GetMapping("/{dataset}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String dataset,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String className,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        ExportService.Dataset exportDataset = ExportService.Dataset.fromPath(dataset);
+        if (exportDataset == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND,
+                    "Unknown export: " + dataset + " (expected students, payments or fee-summaries)"
+            );
+        }
+
+        ExportService.Format exportFormat = parseFormat(format);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "from must not be after to"
+            );
+        }
+
+        String filename = exportDataset.getPath() + "-" + LocalDate.now()
+                + (exportFormat == ExportService.Format.CSV ? ".csv" : ".ndjson")
+                + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? APPLICATION_GZIP
+                : exportFormat == ExportService.Format.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON;
+
+        String classFilter = className == null || className.isBlank() ? null : className;
+        StreamingResponseBody body = outputStream -> exportService.export(
+                exportDataset, exportFormat, gzip, classFilter, from, to, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    private ExportService.Format parseFormat(String format) {
+        try {
+            return ExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Unsupported export format: " + format + " (expected csv or ndjson)"
+            );
+        }
+    }
+
+    private void validateAdminAccess(String role) {
+        if (!"ADMIN".equals(role)) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "Admin access required"
+            );
+        }
+    }
+}
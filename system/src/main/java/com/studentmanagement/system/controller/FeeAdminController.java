@@ -0,0 +1,66 @@
+package com.studentmanagement.system.controller;
+
+import com.studentmanagement.system.dto.OverdueRunReport;
+import com.studentmanagement.system.service.OverdueFeeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/admin/fees")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class FeeAdminController {
+
+    private final OverdueFeeService overdueFeeService;
+
+    /**
+     * Report of the last overdue fee run (ADMIN only)
+     * GET /api/admin/fees/overdue
+     */
+    @GetMapping("/overdue")
+    public ResponseEntity<OverdueRunReport> getLastOverdueReport(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        OverdueRunReport report = overdueFeeService.getLastReport();
+        if (report == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Materialize the current month and mark overdue fee entries now (ADMIN only)
+     * full=true re-evaluates every summary instead of only those past nextDueDate
+     * POST /api/admin/fees/overdue/run?full=false
+     */
+    @PostMapping("/overdue/run")
+    public ResponseEntity<OverdueRunReport> runOverdue(
+            @RequestParam(defaultValue = "false") boolean full,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        OverdueRunReport report = overdueFeeService.run(full);
+        if (report == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "An overdue fee run is already running"
+            );
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    private void validateAdminAccess(String role) {
+        if (!"ADMIN".equals(role)) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "Admin access required"
+            );
+        }
+    }
+}
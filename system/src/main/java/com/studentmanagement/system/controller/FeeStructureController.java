@@ -37,6 +37,19 @@ public class FeeStructureController {
         return new ResponseEntity<>(feeStructure, HttpStatus.CREATED);
     }
 
+    /**
+     * Get fee structure cache statistics (ADMIN only)
+     * GET /api/fee-structure/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        return ResponseEntity.ok(feeStructureService.getCacheStats());
+    }
+
     /**
      * Get fee structure by class name
      * GET /api/fee-structure/{className}
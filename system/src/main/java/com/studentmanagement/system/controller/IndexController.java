@@ -0,0 +1,50 @@
+package com.studentmanagement.system.controller;
+
+import com.studentmanagement.system.dto.QueryPlanReport;
+import com.studentmanagement.system.service.IndexReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/admin/indexes")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class IndexController {
+
+    private final IndexReportService indexReportService;
+
+    /**
+     * Report the query plan of every repository finder (ADMIN only)
+     * GET /api/admin/indexes/report?collectionScansOnly=true
+     */
+    @GetMapping("/report")
+    public ResponseEntity<List<QueryPlanReport>> getQueryPlanReport(
+            @RequestParam(defaultValue = "false") boolean collectionScansOnly,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        List<QueryPlanReport> reports = indexReportService.getQueryPlanReport();
+        if (collectionScansOnly) {
+            reports = reports.stream()
+                    .filter(QueryPlanReport::isCollectionScan)
+                    .collect(Collectors.toList());
+        }
+        return ResponseEntity.ok(reports);
+    }
+
+    private void validateAdminAccess(String role) {
+        if (!"ADMIN".equals(role)) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "Admin access required"
+            );
+        }
+    }
+}
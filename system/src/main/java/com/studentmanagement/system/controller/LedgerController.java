@@ -0,0 +1,126 @@
+package com.studentmanagement.system.controller;
+
+import com.studentmanagement.system.dto.FeeAdjustmentRequest;
+import com.studentmanagement.system.dto.LedgerRebuildReport;
+import com.studentmanagement.system.dto.SnapshotSeedReport;
+import com.studentmanagement.system.model.LedgerEntry;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.service.FeeLedgerRebuildService;
+import com.studentmanagement.system.service.LedgerService;
+import com.studentmanagement.system.service.PaymentService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/ledger")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+    private final PaymentService paymentService;
+    private final FeeLedgerRebuildService feeLedgerRebuildService;
+
+    /**
+     * Ledger entries of a student in replay order (ADMIN only)
+     * GET /api/ledger/students/{studentId}
+     */
+    @GetMapping("/students/{studentId}")
+    public ResponseEntity<List<LedgerEntry>> getStudentLedger(
+            @PathVariable String studentId,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+        return ResponseEntity.ok(ledgerService.getStudentLedger(studentId));
+    }
+
+    /**
+     * Discount, waive or correct a fee entry (ADMIN only)
+     * Returns the updated fee summary
+     * POST /api/ledger/adjustments
+     */
+    @PostMapping("/adjustments")
+    public ResponseEntity<StudentFeeSummary> applyAdjustment(
+            @Valid @RequestBody FeeAdjustmentRequest request,
+            @RequestHeader(value = "X-User-Role", required = false) String role,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+
+        validateAdminAccess(role);
+        return new ResponseEntity<>(paymentService.applyAdjustment(request, userId), HttpStatus.CREATED);
+    }
+
+    /**
+     * Report of the last ledger rebuild or snapshot run (ADMIN only)
+     * GET /api/ledger/rebuild
+     */
+    @GetMapping("/rebuild")
+    public ResponseEntity<LedgerRebuildReport> getLastRebuildReport(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        LedgerRebuildReport report = feeLedgerRebuildService.getLastReport();
+        if (report == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Recompute fee summaries from the ledger and take fresh snapshots (ADMIN only)
+     * writeSummaries=false only takes snapshots
+     * POST /api/ledger/rebuild?writeSummaries=true
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<LedgerRebuildReport> rebuild(
+            @RequestParam(defaultValue = "true") boolean writeSummaries,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        LedgerRebuildReport report = feeLedgerRebuildService.rebuild(writeSummaries);
+        if (report == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "A ledger rebuild is already running"
+            );
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Snapshot existing fee summaries that predate the ledger (ADMIN only)
+     * Run once, while no payments are being taken
+     * POST /api/ledger/snapshots/seed
+     */
+    @PostMapping("/snapshots/seed")
+    public ResponseEntity<SnapshotSeedReport> seedSnapshots(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        SnapshotSeedReport report = feeLedgerRebuildService.seedSnapshots();
+        if (report == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "A ledger rebuild is already running"
+            );
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    private void validateAdminAccess(String role) {
+        if (!"ADMIN".equals(role)) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "Admin access required"
+            );
+        }
+    }
+}
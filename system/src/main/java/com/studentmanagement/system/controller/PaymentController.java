@@ -3,6 +3,7 @@ package com.studentmanagement.system.controller;
 import com.studentmanagement.system.dto.*;
 import com.studentmanagement.system.model.Payment;
 import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.service.IdempotencyService;
 import com.studentmanagement.system.service.PaymentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -22,25 +23,69 @@ import java.util.stream.Collectors;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Process a payment (ADMIN only)
+     * Retries carrying the same Idempotency-Key return the original response
      * POST /api/payments
      */
     @PostMapping
     public ResponseEntity<PaymentResponse> processPayment(
             @Valid @RequestBody CreatePaymentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestHeader(value = "X-User-Role", required = false) String role,
             @RequestHeader(value = "X-User-Id", required = false) String userId) {
 
         validateAdminAccess(role);
 
-        Payment payment = paymentService.processPayment(request, userId);
-        PaymentResponse response = toPaymentResponse(payment);
+        PaymentResponse response;
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            response = toPaymentResponse(paymentService.processPayment(request, userId));
+        } else {
+            response = idempotencyService.execute(idempotencyKey, request,
+                    guard -> toPaymentResponse(paymentService.processPayment(request, userId, guard)));
+        }
 
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * Process many payments in one call (ADMIN only)
+     * Each item succeeds or fails independently
+     * POST /api/payments/batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchPaymentResponse> processPaymentBatch(
+            @Valid @RequestBody BatchPaymentRequest request,
+            @RequestHeader(value = "X-User-Role", required = false) String role,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+
+        validateAdminAccess(role);
+
+        List<PaymentService.BatchItemResult> results =
+                paymentService.processPaymentBatch(request.getPayments(), userId);
+
+        List<BatchPaymentResponse.ItemResult> items = results.stream()
+                .map(result -> BatchPaymentResponse.ItemResult.builder()
+                        .index(result.getIndex())
+                        .success(result.getError() == null)
+                        .payment(result.getPayment() != null ? toPaymentResponse(result.getPayment()) : null)
+                        .error(result.getError())
+                        .build())
+                .collect(Collectors.toList());
+
+        int succeeded = (int) items.stream().filter(BatchPaymentResponse.ItemResult::isSuccess).count();
+        BatchPaymentResponse response = BatchPaymentResponse.builder()
+                .total(items.size())
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .results(items)
+                .build();
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get all payments for a specific student
      * GET /api/payments/student/{studentId}
@@ -0,0 +1,195 @@
+package com.studentmanagement.system.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studentmanagement.system.dto.ArrearsReportResponse;
+import com.studentmanagement.system.dto.RevenueRebuildReport;
+import com.studentmanagement.system.dto.RevenueReportResponse;
+import com.studentmanagement.system.service.ArrearsReportService;
+import com.studentmanagement.system.service.RevenueRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class ReportController {
+
+    private final RevenueRollupService revenueRollupService;
+    private final ArrearsReportService arrearsReportService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Revenue between two dates (inclusive), answered from the daily rollups (ADMIN only)
+     * groupBy is a comma-separated list of day, month, className, paymentType, paymentMethod;
+     * empty for a single total
+     * GET /api/reports/revenue?from=2025-01-01&to=2025-01-31&groupBy=day,className
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<RevenueReportResponse> getRevenue(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String groupBy,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+        validateDateRange(from, to);
+
+        return ResponseEntity.ok(revenueRollupService.getRevenue(from, to, parseGroupBy(groupBy)));
+    }
+
+    /**
+     * Recompute the revenue rollups of a date range from the payments (ADMIN only)
+     * POST /api/reports/revenue/rebuild?from=2025-01-01&to=2025-12-31
+     */
+    @PostMapping("/revenue/rebuild")
+    public ResponseEntity<RevenueRebuildReport> rebuildRevenue(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+        validateDateRange(from, to);
+
+        RevenueRebuildReport report = revenueRollupService.rebuild(from, to);
+        if (report == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "A revenue rollup rebuild is already running"
+            );
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Pending fees per student or per class, sorted by amount (ADMIN only)
+     * GET /api/reports/arrears?groupBy=student|class&className=&order=desc|asc&page=0&size=50
+     */
+    @GetMapping("/arrears")
+    public ResponseEntity<ArrearsReportResponse> getArrears(
+            @RequestParam(defaultValue = "student") String groupBy,
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + ArrearsReportService.DEFAULT_PAGE_SIZE) int size,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        int pageSize = Math.min(Math.max(size, 1), ArrearsReportService.MAX_PAGE_SIZE);
+        ArrearsReportResponse response = arrearsReportService.getArrears(
+                parseArrearsGroupBy(groupBy), blankToNull(className), isAscending(order),
+                Math.max(page, 0), pageSize);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Stream every arrears row as newline-delimited JSON, sorted by amount (ADMIN only)
+     * GET /api/reports/arrears?format=ndjson&groupBy=student|class&className=&order=desc|asc
+     */
+    @GetMapping(value = "/arrears", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamArrears(
+            @RequestParam(defaultValue = "student") String groupBy,
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        ArrearsReportService.GroupBy arrearsGroupBy = parseArrearsGroupBy(groupBy);
+        String classFilter = blankToNull(className);
+        boolean ascending = isAscending(order);
+
+        StreamingResponseBody body = outputStream -> arrearsReportService.streamArrears(
+                arrearsGroupBy, classFilter, ascending, row -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(row));
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private ArrearsReportService.GroupBy parseArrearsGroupBy(String groupBy) {
+        try {
+            return ArrearsReportService.GroupBy.valueOf(groupBy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Unsupported groupBy: " + groupBy + " (expected student or class)"
+            );
+        }
+    }
+
+    private boolean isAscending(String order) {
+        if ("asc".equalsIgnoreCase(order)) {
+            return true;
+        }
+        if ("desc".equalsIgnoreCase(order)) {
+            return false;
+        }
+        throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST,
+                "Unsupported order: " + order + " (expected asc or desc)"
+        );
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private List<String> parseGroupBy(String groupBy) {
+        List<String> dimensions = new ArrayList<>();
+        for (String dimension : groupBy.split(",")) {
+            String trimmed = dimension.trim();
+            if (trimmed.isEmpty() || dimensions.contains(trimmed)) {
+                continue;
+            }
+            if (!RevenueRollupService.GROUP_BY_DIMENSIONS.contains(trimmed)) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST,
+                        "Unsupported groupBy: " + trimmed + " (expected "
+                                + String.join(", ", RevenueRollupService.GROUP_BY_DIMENSIONS) + ")"
+                );
+            }
+            dimensions.add(trimmed);
+        }
+        return dimensions;
+    }
+
+    private void validateDateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "from must not be after to"
+            );
+        }
+    }
+
+    private void validateAdminAccess(String role) {
+        if (!"ADMIN".equals(role)) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "Admin access required"
+            );
+        }
+    }
+}
@@ -3,28 +3,40 @@ package com.studentmanagement.system.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.studentmanagement.system.dto.BulkUpdateClassRequest;
 import com.studentmanagement.system.dto.CreateStudentRequest;
+import com.studentmanagement.system.dto.StudentImportResponse;
+import com.studentmanagement.system.dto.StudentPageResponse;
 import com.studentmanagement.system.dto.StudentResponse;
+import com.studentmanagement.system.dto.StudentSummaryResponse;
 import com.studentmanagement.system.dto.UpdateStudentRequest;
+import com.studentmanagement.system.dto.UploadedFile;
 import com.studentmanagement.system.mapper.StudentMapper;
 import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.service.FileServingService;
 import com.studentmanagement.system.service.FileStorageService;
+import com.studentmanagement.system.service.StudentImportService;
 import com.studentmanagement.system.service.StudentService;
+import com.studentmanagement.system.service.ThumbnailService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.nio.file.Path;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -35,7 +47,9 @@ public class StudentController {
 
     private final StudentService studentService;
     private final FileStorageService fileStorageService;
+    private final FileServingService fileServingService;
     private final ObjectMapper objectMapper;
+    private final StudentImportService studentImportService;
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<StudentResponse> createStudent(
@@ -53,22 +67,61 @@ public class StudentController {
 
 
     /**
-     * Get all students (ADMIN only)
-     * GET /api/students
+     * Get a page of students (ADMIN only)
+     * Pass the returned nextCursor as cursor to fetch the following page
+     * GET /api/students?cursor={id}&size={size}
      */
     @GetMapping
-    public ResponseEntity<List<StudentResponse>> getAllStudents(
+    public ResponseEntity<StudentPageResponse> getAllStudents(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + StudentService.DEFAULT_PAGE_SIZE) int size,
             @RequestHeader(value = "X-User-Role", required = false) String role) {
 
         validateAdminAccess(role);
 
-        List<Students> students = studentService.getAllStudents();
-        List<StudentResponse> response = students.stream()
+        int pageSize = Math.min(Math.max(size, 1), StudentService.MAX_PAGE_SIZE);
+        List<Students> students = studentService.getStudentsPage(cursor, pageSize);
+        List<StudentResponse> content = students.stream()
                 .map(StudentMapper::toResponse)
                 .collect(Collectors.toList());
+
+        // A full page means there may be more students after the last one
+        String nextCursor = students.size() == pageSize
+                ? students.get(students.size() - 1).getId()
+                : null;
+
+        StudentPageResponse response = StudentPageResponse.builder()
+                .students(content)
+                .nextCursor(nextCursor)
+                .size(content.size())
+                .build();
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    /**
+     * Stream all students as newline-delimited JSON (ADMIN only)
+     * GET /api/students?format=ndjson
+     */
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllStudents(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        StreamingResponseBody body = outputStream -> studentService.streamAllStudents(student -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(StudentMapper.toResponse(student)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     /**
      * Get students by class name (ADMIN only)
      * GET /api/students/class/{className}
@@ -87,6 +140,20 @@ public class StudentController {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    /**
+     * Get roster summaries by class name (ADMIN only)
+     * GET /api/students/class/{className}?view=summary
+     */
+    @GetMapping(value = "/class/{className}", params = "view=summary")
+    public ResponseEntity<List<StudentSummaryResponse>> getStudentSummariesByClass(
+            @PathVariable String className,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        return ResponseEntity.ok(studentService.getStudentSummariesByClass(className));
+    }
+
     /**
      * Get students assigned to a specific teacher
      * Teachers can only access their own students
@@ -115,6 +182,40 @@ public class StudentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get roster summaries of a specific teacher
+     * Teachers can only access their own students
+     * GET /api/students/teacher/{teacherId}?view=summary
+     */
+    @GetMapping(value = "/teacher/{teacherId}", params = "view=summary")
+    public ResponseEntity<List<StudentSummaryResponse>> getStudentSummariesByTeacher(
+            @PathVariable String teacherId,
+            @RequestHeader(value = "X-User-Role", required = false) String role,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+
+        if ("TEACHER".equals(role) && !teacherId.equals(userId)) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "You can only access your own students"
+            );
+        }
+
+        return ResponseEntity.ok(studentService.getStudentSummariesByTeacher(teacherId));
+    }
+
+    /**
+     * Get student cache statistics (ADMIN only)
+     * GET /api/students/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        return ResponseEntity.ok(studentService.getCacheStats());
+    }
+
     /**
      * Get student by student ID
      * Teachers can only access their own students
@@ -164,20 +265,15 @@ public class StudentController {
                 validateTeacherAccess(userId, String.valueOf(existingStudent.getTeacherId()));
             }
 
-            // Handle image upload if provided
+            Students updatedStudent;
             if (image != null && !image.isEmpty()) {
-                // Get existing student to delete old image
-                Students existingStudent = studentService.getStudentByStudentId(studentId);
-                if (existingStudent.getProfileImageUrl() != null) {
-                    fileStorageService.deleteFile(existingStudent.getProfileImageUrl());
-                }
-
-                // Upload new image
-                String filename = fileStorageService.storeFile(image, studentId);
-                request.setProfileImageUrl(filename);
+                // Upload new image; the old one is released once the student points at the new one
+                UploadedFile uploaded = fileStorageService.storeFile(image, studentId);
+                updatedStudent = updateWithImage(studentId, request, uploaded);
+            } else {
+                updatedStudent = studentService.updateStudent(studentId, request);
             }
 
-            Students updatedStudent = studentService.updateStudent(studentId, request);
             if (updatedStudent != null) {
                 StudentResponse response = StudentMapper.toResponse(updatedStudent);
                 return new ResponseEntity<>(response, HttpStatus.OK);
@@ -192,6 +288,41 @@ public class StudentController {
         }
     }
 
+    /**
+     * Replace student profile image with the raw request body (no multipart buffering)
+     * The image type is checked from the first bytes and the 5MB limit while streaming.
+     * ADMIN can update any student
+     * TEACHER can only update their own students
+     * PUT /api/students/{studentId}/image  (Content-Type: image/jpeg, image/png, ...)
+     */
+    @PutMapping(value = "/{studentId}/image",
+            consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE,
+                    "image/webp", "image/bmp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StudentResponse> uploadStudentImage(
+            @PathVariable String studentId,
+            HttpServletRequest httpRequest,
+            @RequestHeader(value = "X-User-Role", required = false) String role,
+            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+
+        Students existingStudent = studentService.getStudentByStudentId(studentId);
+        if ("TEACHER".equals(role)) {
+            validateTeacherAccess(userId, String.valueOf(existingStudent.getTeacherId()));
+        }
+
+        UploadedFile uploaded;
+        try (InputStream body = httpRequest.getInputStream()) {
+            uploaded = fileStorageService.storeFile(body, httpRequest.getContentLengthLong(), studentId);
+        } catch (IOException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Failed to read image upload: " + e.getMessage()
+            );
+        }
+
+        Students updatedStudent = updateWithImage(studentId, new UpdateStudentRequest(), uploaded);
+        return ResponseEntity.ok(StudentMapper.toResponse(updatedStudent));
+    }
+
     /**
      * Delete student by student ID (ADMIN only)
      * DELETE /api/students/{studentId}
@@ -203,14 +334,13 @@ public class StudentController {
 
         validateAdminAccess(role);
 
-        // Get student to delete their image
-        Students student = studentService.getStudentByStudentId(studentId);
+        // Release the image of the document actually removed, not a cached copy
+        Students student = studentService.deleteStudent(studentId);
+
         if (student.getProfileImageUrl() != null) {
             fileStorageService.deleteFile(student.getProfileImageUrl());
         }
 
-        studentService.deleteStudent(studentId);
-
         return ResponseEntity.ok(
                 Map.of("message", "Student with ID " + studentId + " was successfully deleted.")
         );
@@ -218,39 +348,55 @@ public class StudentController {
 
     /**
      * Download/view student profile image
-     * GET /api/students/{studentId}/image
+     * size is 64 or 256 for a thumbnail (longest side in pixels), or original (default)
+     * Stored filenames are immutable, so the filename is a strong ETag. Requests that
+     * pin the current filename with ?v={profileImageUrl} may be cached for a year.
+     * Supports If-None-Match / If-Modified-Since (304) and single byte Range requests (206).
+     * GET /api/students/{studentId}/image?size={size}&v={profileImageUrl}
      */
     @GetMapping("/{studentId}/image")
-    public ResponseEntity<Resource> getStudentImage(@PathVariable String studentId) {
+    public void getStudentImage(
+            @PathVariable String studentId,
+            @RequestParam(required = false) String size,
+            @RequestParam(required = false) String v,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
+
+        Integer thumbnailSize = parseImageSize(size);
         try {
             Students student = studentService.getStudentByStudentId(studentId);
 
-            if (student.getProfileImageUrl() == null) {
-                return ResponseEntity.notFound().build();
+            String filename = student.getProfileImageUrl();
+            if (filename == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Student has no profile image");
             }
 
-            Path filePath = fileStorageService.getFilePath(student.getProfileImageUrl());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                // Determine content type
-                String contentType = "application/octet-stream";
-                String filename = student.getProfileImageUrl();
-                if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
-                    contentType = "image/jpeg";
-                } else if (filename.endsWith(".png")) {
-                    contentType = "image/png";
-                } else if (filename.endsWith(".gif")) {
-                    contentType = "image/gif";
-                }
-
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .body(resource);
+            FileStorageService.StoredImage image = fileStorageService.resolveImage(filename, thumbnailSize)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Image file not found"));
+
+            // The variant is part of the ETag: a pending thumbnail falls back to the original
+            boolean thumbnailServed = image.thumbnail();
+            String etag = "\"" + filename + "-" + (thumbnailServed ? thumbnailSize : "original") + "\"";
+
+            // The URL only identifies an immutable file when it pins the current filename
+            CacheControl cacheControl = filename.equals(v) && (thumbnailSize == null || thumbnailServed)
+                    ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                    : CacheControl.noCache();
+
+            // Thumbnails are PNG, GIF or JPEG whatever the original is
+            String contentType;
+            if (thumbnailServed) {
+                contentType = ThumbnailService.contentType(filename);
             } else {
-                return ResponseEntity.notFound().build();
+                contentType = student.getProfileImageContentType() != null
+                        ? student.getProfileImageContentType()
+                        : fileStorageService.guessContentType(filename);
             }
+
+            httpResponse.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileStorageService.baseName(filename) + "\"");
+            fileServingService.serve(image.blob(), contentType, etag, cacheControl, httpRequest, httpResponse);
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             throw new ResponseStatusException(
                     HttpStatus.INTERNAL_SERVER_ERROR,
@@ -259,6 +405,34 @@ public class StudentController {
         }
     }
 
+    /**
+     * Import students from a CSV or NDJSON body (ADMIN only)
+     * CSV needs a header row naming the create-student fields; NDJSON has one student per line.
+     * Valid rows are imported, the others are listed in the response with their row number.
+     * POST /api/students/import  (Content-Type: text/csv or application/x-ndjson)
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StudentImportResponse> importStudents(
+            HttpServletRequest httpRequest,
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        StudentImportService.Format format =
+                MediaType.parseMediaType(httpRequest.getContentType()).isCompatibleWith(MediaType.valueOf("text/csv"))
+                        ? StudentImportService.Format.CSV
+                        : StudentImportService.Format.NDJSON;
+
+        try (InputStream body = httpRequest.getInputStream()) {
+            return ResponseEntity.ok(studentImportService.importStudents(body, format));
+        } catch (IOException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Failed to read import: " + e.getMessage()
+            );
+        }
+    }
+
     /**
      * Bulk update class for students (ADMIN only)
      * PUT /api/students/bulk/class
@@ -281,6 +455,51 @@ public class StudentController {
         return ResponseEntity.ok(message);
     }
 
+    /**
+     * Point the student at a newly stored image, then release the image the update
+     * replaced, as returned by the update itself rather than read beforehand.
+     * The new reference is released again when the update fails.
+     */
+    private Students updateWithImage(String studentId, UpdateStudentRequest request, UploadedFile uploaded) {
+        request.setProfileImageUrl(uploaded.getFilename());
+        request.setProfileImageContentType(uploaded.getContentType());
+
+        StudentService.StudentUpdate update;
+        try {
+            update = studentService.updateStudentReturningPrevious(studentId, request);
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(uploaded.getFilename());
+            throw e;
+        }
+
+        // Also correct when the same photo was uploaded again: it now holds one extra reference
+        if (update.getPreviousImage() != null) {
+            fileStorageService.deleteFile(update.getPreviousImage());
+        }
+        return update.getUpdated();
+    }
+
+    /**
+     * Parse the image size parameter; null means the original image
+     */
+    private Integer parseImageSize(String size) {
+        if (size == null || size.isEmpty() || "original".equalsIgnoreCase(size)) {
+            return null;
+        }
+        try {
+            int pixels = Integer.parseInt(size);
+            if (ThumbnailService.THUMBNAIL_SIZES.contains(pixels)) {
+                return pixels;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST,
+                "Invalid image size: " + size + ". Allowed: " + ThumbnailService.THUMBNAIL_SIZES + " or original"
+        );
+    }
+
     /**
      * Validate that only ADMIN can access this endpoint
      */
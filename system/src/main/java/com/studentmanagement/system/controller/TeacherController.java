@@ -3,6 +3,7 @@ package com.studentmanagement.system.controller;
 import com.studentmanagement.system.dto.CreateTeacherRequest;
 import com.studentmanagement.system.dto.UpdateTeacherRequest;
 import com.studentmanagement.system.dto.TeacherResponse;
+import com.studentmanagement.system.dto.TeacherSummaryResponse;
 import com.studentmanagement.system.model.Teacher;
 import com.studentmanagement.system.model.TeacherMapper;
 import com.studentmanagement.system.service.TeacherService;
@@ -56,6 +57,19 @@ public class TeacherController {
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * Get summaries of all teachers (ADMIN only)
+     * GET /api/teachers?view=summary
+     */
+    @GetMapping(params = "view=summary")
+    public ResponseEntity<List<TeacherSummaryResponse>> getTeacherSummaries(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        return ResponseEntity.ok(teacherService.getTeacherSummaries());
+    }
+
     /**
      * Get teacher by ID (ADMIN only)
      */
@@ -0,0 +1,87 @@
+package com.studentmanagement.system.controller;
+
+import com.studentmanagement.system.dto.OrphanSweepReport;
+import com.studentmanagement.system.dto.UploadMigrationReport;
+import com.studentmanagement.system.service.OrphanFileSweeper;
+import com.studentmanagement.system.service.UploadLayoutMigrationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/admin/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class UploadAdminController {
+
+    private final OrphanFileSweeper orphanFileSweeper;
+    private final UploadLayoutMigrationService uploadLayoutMigrationService;
+
+    /**
+     * Report of the last orphan file sweep (ADMIN only)
+     * GET /api/admin/uploads/sweep
+     */
+    @GetMapping("/sweep")
+    public ResponseEntity<OrphanSweepReport> getLastSweepReport(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        OrphanSweepReport report = orphanFileSweeper.getLastReport();
+        if (report == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Run an orphan file sweep now (ADMIN only)
+     * POST /api/admin/uploads/sweep
+     */
+    @PostMapping("/sweep")
+    public ResponseEntity<OrphanSweepReport> runSweep(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        OrphanSweepReport report = orphanFileSweeper.sweep();
+        if (report == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "An orphan file sweep is already running"
+            );
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Move flat uploads into the sharded ab/cd/<name> layout and rewrite profileImageUrl (ADMIN only)
+     * POST /api/admin/uploads/migrate-layout
+     */
+    @PostMapping("/migrate-layout")
+    public ResponseEntity<UploadMigrationReport> migrateLayout(
+            @RequestHeader(value = "X-User-Role", required = false) String role) {
+
+        validateAdminAccess(role);
+
+        UploadMigrationReport report = uploadLayoutMigrationService.migrate();
+        if (report == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "The upload layout migration is already running"
+            );
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    private void validateAdminAccess(String role) {
+        if (!"ADMIN".equals(role)) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "Admin access required"
+            );
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.studentmanagement.system.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArrearsReportResponse {
+    private String groupBy;  // student or class
+    private int page;
+    private int size;
+    private long totalItems;          // Students or classes with pending fees
+    private double totalPendingAmount;
+    private List<Row> items;
+
+    /**
+     * A student in arrears, or a class with its students' arrears added up
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Row {
+        private String studentId;
+        private String studentName;
+        private String className;
+        private Long students;  // Class rows only
+        private double totalFeesAmount;
+        private double totalPaidAmount;
+        private double pendingAmount;
+        private LocalDateTime lastPaymentDate;  // Student rows only
+    }
+}
@@ -0,0 +1,23 @@
+package com.studentmanagement.system.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO for POST /api/payments/batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentRequest {
+
+    @NotEmpty(message = "At least one payment is required")
+    @Size(max = 1000, message = "A batch can contain at most 1000 payments")
+    private List<@Valid CreatePaymentRequest> payments;
+}
@@ -0,0 +1,30 @@
+package com.studentmanagement.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<ItemResult> results;  // Same order as the submitted payments
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private int index;
+        private boolean success;
+        private PaymentResponse payment;  // Set when success is true
+        private String error;             // Set when success is false
+    }
+}
@@ -0,0 +1,37 @@
+package com.studentmanagement.system.dto;
+
+import com.studentmanagement.system.model.Payment;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request DTO for a discount, waiver or correction of one fee entry.
+ * Recorded in the payment ledger; the fee summary follows.
+ */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeAdjustmentRequest {
+
+    @NotBlank(message = "Student ID is required")
+    private String studentId;
+
+    @NotNull(message = "Fee type is required")
+    private Payment.PaymentType feeType;  // ADMISSION, MONTHLY, ANNUAL
+
+    // Signed change of the fee: negative for a discount or waiver
+    @NotNull(message = "Amount is required")
+    private Double amount;
+
+    @NotBlank(message = "Reason is required")
+    private String reason;
+
+    private Integer month;  // 1–12, MONTHLY only
+    private Integer year;   // MONTHLY and ANNUAL
+}
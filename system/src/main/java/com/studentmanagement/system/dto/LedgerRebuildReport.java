@@ -0,0 +1,28 @@
+package com.studentmanagement.system.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class LedgerRebuildReport {
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private boolean writeSummaries;   // false: snapshots only
+    private int parallelism;
+    private long students;            // Students with ledger entries or a snapshot
+    private long unseededStudents;    // History predates the ledger and no snapshot was seeded; skipped
+    private long replayedEntries;     // Entries after the snapshots, i.e. the work actually done
+    private long orphanEntries;       // Payments/adjustments of a fee entry the ledger never charged, or
+                                      // reversals of a payment not in the replay; ignored
+    private long snapshotsWritten;
+    private long mismatchedSummaries; // Summaries whose balances differed from the ledger
+    private long updatedSummaries;
+    private long conflictedSummaries; // Changed by a payment during the rebuild; left to the next run
+    private long missingSummaries;    // Ledger entries but no summary document
+    private long deferredSummaries;   // Recent entries or an unrecorded reversal; left to the next run
+    private long failedPartitions;
+    private String error;             // Set when the run aborted
+}
@@ -0,0 +1,20 @@
+package com.studentmanagement.system.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class OrphanSweepReport {
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long scannedFiles;
+    private long referencedFiles;
+    private long skippedRecentFiles;  // Unreferenced but still inside the grace period
+    private long deletedFiles;        // Orphaned images, stale temp files and dangling thumbnails
+    private long reclaimedBytes;
+    private boolean truncated;        // Stopped at the per-run delete limit
+    private String error;             // Set when the sweep aborted
+}
@@ -0,0 +1,20 @@
+package com.studentmanagement.system.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class OverdueRunReport {
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private boolean fullScan;              // Every summary re-evaluated, not only those past nextDueDate
+    private long createdSummaries;         // Students of a fee-paying class that had no summary
+    private long materializedMonthEntries; // Current month added where missing
+    private long materializedYearEntries;  // Current year added where missing
+    private long scannedSummaries;
+    private long updatedSummaries;         // Entries flipped to OVERDUE and/or nextDueDate moved on
+    private String error;                  // Set when the run aborted
+}
@@ -0,0 +1,21 @@
+package com.studentmanagement.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryPlanReport {
+    private String query;           // Repository method, e.g. "StudentRepository.findByStudentId"
+    private String collection;
+    private boolean collectionScan; // true when the winning plan contains a COLLSCAN stage
+    private List<String> stages;
+    private List<String> indexNames;
+    private String error;           // Set when explain could not be run
+}
@@ -0,0 +1,18 @@
+package com.studentmanagement.system.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class RevenueRebuildReport {
+    private LocalDate from;
+    private LocalDate to;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long deletedRollups;  // Rollups of the range before the rebuild
+    private long rollups;         // Rollups of the range after the rebuild
+}
@@ -0,0 +1,41 @@
+package com.studentmanagement.system.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueReportResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private List<String> groupBy;
+    private double totalAmount;
+    private long totalCount;
+    private List<Row> rows;
+
+    /**
+     * One group; only the dimensions named in groupBy are set
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Row {
+        private String day;
+        private String month;
+        private String className;
+        private String paymentType;
+        private String paymentMethod;
+        private double amount;
+        private long count;
+    }
+}
@@ -0,0 +1,16 @@
+package com.studentmanagement.system.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class SnapshotSeedReport {
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String lastEntryId;      // Entries up to here are taken to be in the seeded summaries
+    private long scannedSummaries;
+    private long seededSnapshots;    // Summaries that had no snapshot yet
+}
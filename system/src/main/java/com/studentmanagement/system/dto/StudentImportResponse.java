@@ -0,0 +1,30 @@
+package com.studentmanagement.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentImportResponse {
+    private int totalRows;
+    private int imported;
+    private int failed;
+    private boolean errorsTruncated;  // More rows failed than are listed in errors
+    private List<RowError> errors;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int row;          // 1-based data row; the CSV header row is not counted
+        private String studentId; // When it could be read
+        private String error;
+    }
+}
@@ -0,0 +1,19 @@
+package com.studentmanagement.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StudentPageResponse {
+
+    private List<StudentResponse> students;
+    private String nextCursor;  // null when this is the last page
+    private int size;
+}
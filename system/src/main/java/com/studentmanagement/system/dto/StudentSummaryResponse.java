@@ -0,0 +1,22 @@
+package com.studentmanagement.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Roster view of a student. Also used as a Mongo projection,
+ * so only these fields are read from the students collection.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StudentSummaryResponse {
+
+    private String studentId;
+    private String fullName;
+    private String className;
+    private String teacherId;
+}
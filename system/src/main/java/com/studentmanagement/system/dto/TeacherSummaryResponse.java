@@ -0,0 +1,21 @@
+package com.studentmanagement.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * List view of a teacher. Also used as a Mongo projection,
+ * so only these fields are read from the teachers collection.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TeacherSummaryResponse {
+
+    private String teacherId;
+    private String fullName;
+    private String subject;
+}
@@ -1,5 +1,6 @@
 package com.studentmanagement.system.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
@@ -38,4 +39,8 @@ public class UpdateStudentRequest {
 
     // Image-related field
     private String profileImageUrl;
+
+    // Set by the server from the uploaded file, never taken from the client
+    @JsonIgnore
+    private String profileImageContentType;
 }
\ No newline at end of file
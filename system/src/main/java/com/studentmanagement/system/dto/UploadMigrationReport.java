@@ -0,0 +1,18 @@
+package com.studentmanagement.system.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class UploadMigrationReport {
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long scannedStudents;     // Students still holding a flat profileImageUrl
+    private long updatedStudents;     // profileImageUrl rewritten to the sharded name
+    private long missingFiles;        // Flat names whose file no longer exists
+    private long relocatedFiles;      // Flat files moved, referenced or not
+    private String error;             // Set when the migration aborted
+}
@@ -0,0 +1,15 @@
+package com.studentmanagement.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadedFile {
+
+    private String filename;
+    private String contentType;  // Detected from the file content at upload time
+    private long size;
+}
@@ -80,6 +80,7 @@ public class StudentMapper {
         }
         if (request.getProfileImageUrl() != null) {
             student.setProfileImageUrl(request.getProfileImageUrl());
+            student.setProfileImageContentType(request.getProfileImageContentType());
         }
     }
 
@@ -2,6 +2,7 @@ package com.studentmanagement.system.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -13,6 +14,7 @@ public class FeeStructure {
     @Id
     private String id;
 
+    @Indexed(unique = true, sparse = true)
     private String className;  // Fee structure per class
 
     private Double admissionFee;
@@ -0,0 +1,37 @@
+package com.studentmanagement.system.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fee balances of a student after replaying the ledger up to lastEntryId.
+ * A rebuild starts from here and only replays the entries after it.
+ */
+@Data
+@Document(collection = "fee_summary_snapshots")
+public class FeeSummarySnapshot {
+
+    @Id
+    private String studentId;
+
+    private String lastEntryId;  // Every entry up to this one is included
+    private LocalDateTime takenAt;
+
+    private Double admissionFeeTotal;
+    private Double admissionFeePaid;
+    private Double admissionFeePending;
+
+    private Map<String, StudentFeeSummary.MonthlyFeeDetail> monthlyFees = new HashMap<>();
+    private Map<String, StudentFeeSummary.AnnualFeeDetail> annualFees = new HashMap<>();
+
+    private Double totalFeesAmount;
+    private Double totalPaidAmount;
+    private Double totalPendingAmount;
+
+    private LocalDateTime lastPaymentDate;
+}
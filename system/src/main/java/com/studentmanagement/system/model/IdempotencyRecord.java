@@ -0,0 +1,30 @@
+package com.studentmanagement.system.model;
+
+import com.studentmanagement.system.dto.PaymentResponse;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "payment_idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String key;  // Client supplied Idempotency-Key header
+
+    private String requestHash;  // Detects the same key reused for a different payment
+
+    // Status: IN_PROGRESS, APPLYING (payment may have been saved), COMPLETED,
+    // FAILED (failed after APPLYING; the key is refused)
+    private String status;
+
+    private String owner;  // Random token of the request holding the reservation
+
+    private PaymentResponse response;  // Stored once the payment completes
+
+    @Indexed(expireAfter = "24h")
+    private LocalDateTime createdAt;  // TTL: keys are forgotten after a day
+}
@@ -0,0 +1,104 @@
+package com.studentmanagement.system.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable fact about a student's fees. Entries are only ever inserted;
+ * fee summaries are projections of a student's entries in entryId order.
+ * A payment the fee summary did not take is cancelled by a REVERSAL entry.
+ */
+@Data
+@Document(collection = "payment_ledger")
+@CompoundIndex(name = "studentId_entryId", def = "{'studentId': 1, 'entryId': 1}", unique = true)
+public class LedgerEntry {
+
+    @Id
+    private String id;  // Deterministic per fact, so recording the same charge or payment twice is a no-op
+
+    private String entryId;  // Time-ordered; fixes the replay order within a student
+    private String studentId;
+
+    private EntryType type;
+    private Payment.PaymentType feeType;
+    private String period;  // "MM-YYYY" for monthly, "YYYY" for annual, null for admission
+
+    // CHARGE: fee amount; PAYMENT, REVERSAL: amount paid; ADJUSTMENT: signed change of the fee
+    private Double amount;
+
+    private Double feeAmount;       // PAYMENT of a monthly/annual fee: the fee it charges if not yet charged
+    private LocalDateTime dueDate;  // CHARGE or PAYMENT of a monthly/annual fee
+    private String paymentId;       // PAYMENT, REVERSAL
+    private String reason;          // ADJUSTMENT
+
+    private String createdBy;
+    private LocalDateTime createdAt;
+
+    public enum EntryType {
+        CHARGE,      // A fee became payable
+        PAYMENT,     // Money received against a fee
+        ADJUSTMENT,  // Discount, waiver or correction of a fee
+        REVERSAL     // Cancels a payment the fee summary did not take
+    }
+
+    public static LedgerEntry charge(String entryId, String studentId, Payment.PaymentType feeType,
+                                     String period, double amount, LocalDateTime dueDate) {
+        LedgerEntry entry = newEntry(entryId, studentId, EntryType.CHARGE, feeType, period, amount);
+        entry.setId("CHG|" + studentId + "|" + feeType + "|" + (period != null ? period : ""));
+        entry.setDueDate(dueDate);
+        return entry;
+    }
+
+    /**
+     * Payment against a fee; fee is the monthly/annual entry the payment creates when
+     * the student does not have it yet, null for admission
+     */
+    public static LedgerEntry payment(String entryId, Payment payment, String period,
+                                      StudentFeeSummary.FeeDetail fee) {
+        LedgerEntry entry = newEntry(entryId, payment.getStudentId(), EntryType.PAYMENT,
+                payment.getPaymentType(), period, payment.getAmountPaid());
+        entry.setId("PAY|" + payment.getPaymentId());
+        entry.setPaymentId(payment.getPaymentId());
+        entry.setCreatedBy(payment.getCreatedBy());
+        if (fee != null) {
+            entry.setFeeAmount(fee.getTotal());
+            entry.setDueDate(fee.getDueDate());
+        }
+        return entry;
+    }
+
+    public static LedgerEntry reversal(String entryId, LedgerEntry payment) {
+        LedgerEntry entry = newEntry(entryId, payment.getStudentId(), EntryType.REVERSAL,
+                payment.getFeeType(), payment.getPeriod(), payment.getAmount());
+        entry.setId("REV|" + payment.getPaymentId());
+        entry.setPaymentId(payment.getPaymentId());
+        entry.setCreatedBy(payment.getCreatedBy());
+        return entry;
+    }
+
+    public static LedgerEntry adjustment(String entryId, String studentId, Payment.PaymentType feeType,
+                                         String period, double amount, String reason, String createdBy) {
+        LedgerEntry entry = newEntry(entryId, studentId, EntryType.ADJUSTMENT, feeType, period, amount);
+        entry.setId("ADJ|" + entryId);
+        entry.setReason(reason);
+        entry.setCreatedBy(createdBy);
+        return entry;
+    }
+
+    private static LedgerEntry newEntry(String entryId, String studentId, EntryType type,
+                                        Payment.PaymentType feeType, String period, double amount) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setEntryId(entryId);
+        entry.setStudentId(studentId);
+        entry.setType(type);
+        entry.setFeeType(feeType);
+        entry.setPeriod(period);
+        entry.setAmount(amount);
+        entry.setCreatedAt(LocalDateTime.now());
+        return entry;
+    }
+}
@@ -0,0 +1,19 @@
+package com.studentmanagement.system.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "id_node_leases")
+public class NodeIdLease {
+
+    @Id
+    private Integer nodeId;  // Snowflake node ID, 0-1023
+
+    private String owner;  // Random token of the app process holding the lease
+
+    private LocalDateTime expiresAt;  // Renewed while the process runs; free to take once passed
+}
@@ -2,20 +2,29 @@ package com.studentmanagement.system.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "payments")
+@CompoundIndexes({
+        @CompoundIndex(name = "studentId_paymentDate", def = "{'studentId': 1, 'paymentDate': -1}"),
+        @CompoundIndex(name = "className_paymentDate", def = "{'className': 1, 'paymentDate': -1}")
+})
 public class Payment {
 
     @Id
     private String id;
 
+    @Indexed(unique = true, sparse = true)
     private String paymentId;  // Unique payment transaction ID
     private String studentId;  // Reference to student
     private String studentName;  // For quick reference
+    private String className;  // Student's class when paid, for revenue rollups
 
     // Payment Type: ADMISSION, MONTHLY, ANNUAL
     private PaymentType paymentType;
@@ -29,6 +38,7 @@ public class Payment {
     private PaymentMethod paymentMethod;
 
     private String transactionReference;  // Bank ref, receipt number, etc.
+    @Indexed
     private LocalDateTime paymentDate;
     private String remarks;
 
@@ -38,6 +48,7 @@ public class Payment {
     private Integer year;
 
     // Status: PAID, PARTIAL, PENDING, OVERDUE
+    @Indexed
     private PaymentStatus status;
 
     private LocalDateTime createdAt;
@@ -0,0 +1,32 @@
+package com.studentmanagement.system.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revenue of one day for one class, payment type and payment method,
+ * incremented as payments are recorded
+ */
+@Data
+@Document(collection = "revenue_rollups")
+public class RevenueRollup {
+
+    @Id
+    private String id;  // "<day>|<className>|<paymentType>|<paymentMethod>"
+
+    @Indexed
+    private String day;    // yyyy-MM-dd, server time zone like paymentDate
+    private String month;  // yyyy-MM
+    private String className;
+    private Payment.PaymentType paymentType;
+    private Payment.PaymentMethod paymentMethod;
+
+    private Double amount;  // Sum of amountPaid
+    private Long count;     // Number of payments
+
+    private LocalDateTime updatedAt;
+}
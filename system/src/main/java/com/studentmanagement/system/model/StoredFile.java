@@ -0,0 +1,24 @@
+package com.studentmanagement.system.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "stored_files")
+public class StoredFile {
+
+    @Id
+    private String filename;  // <sha256>.<ext> without shard directories, so identical uploads share one file
+
+    private String sha256;
+    private String contentType;
+    private long size;
+
+    private int refCount;  // Number of students whose profileImageUrl points at this file
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -2,6 +2,8 @@ package com.studentmanagement.system.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -15,8 +17,10 @@ public class StudentFeeSummary {
     @Id
     private String id;
 
+    @Indexed(unique = true, sparse = true)
     private String studentId;
     private String studentName;
+    @Indexed
     private String className;
 
     // Admission Fee Status
@@ -36,27 +40,88 @@ public class StudentFeeSummary {
     // Total Summary
     private Double totalFeesAmount;
     private Double totalPaidAmount;
+    @Indexed
     private Double totalPendingAmount;
 
     private LocalDateTime lastPaymentDate;
+
+    // No PENDING/PARTIAL entry is due before this; absent when nothing is unpaid.
+    // Lets the overdue job find candidates without scanning the fee maps.
+    @Indexed(sparse = true)
+    private LocalDateTime nextDueDate;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    @Version
+    private Long version;  // Optimistic concurrency across nodes
+
+    private String lastBatchId;  // Payment batch that last wrote this summary
+
+    /**
+     * Key of a month in monthlyFees, e.g. "01-2025"
+     */
+    public static String monthKey(int month, int year) {
+        return String.format("%02d-%d", month, year);
+    }
+
+    /**
+     * Balance of one monthly or annual fee entry
+     */
+    public interface FeeDetail {
+        Double getTotal();
+        void setTotal(Double total);
+        Double getPaid();
+        void setPaid(Double paid);
+        Double getPending();
+        void setPending(Double pending);
+        String getStatus();
+        void setStatus(String status);
+        LocalDateTime getDueDate();
+        void setDueDate(LocalDateTime dueDate);
+    }
+
     @Data
-    public static class MonthlyFeeDetail {
+    public static class MonthlyFeeDetail implements FeeDetail {
         private Double total;
         private Double paid;
         private Double pending;
         private String status;  // PAID, PARTIAL, PENDING, OVERDUE
         private LocalDateTime dueDate;
+
+        /**
+         * Unpaid month entry, due on the 5th of the month
+         */
+        public static MonthlyFeeDetail unpaid(double monthlyFee, int year, int month) {
+            MonthlyFeeDetail detail = new MonthlyFeeDetail();
+            detail.setTotal(monthlyFee);
+            detail.setPaid(0.0);
+            detail.setPending(monthlyFee);
+            detail.setStatus("PENDING");
+            detail.setDueDate(LocalDateTime.of(year, month, 5, 0, 0));
+            return detail;
+        }
     }
 
     @Data
-    public static class AnnualFeeDetail {
+    public static class AnnualFeeDetail implements FeeDetail {
         private Double total;
         private Double paid;
         private Double pending;
         private String status;  // PAID, PARTIAL, PENDING, OVERDUE
         private LocalDateTime dueDate;
+
+        /**
+         * Unpaid year entry, due on January 31st
+         */
+        public static AnnualFeeDetail unpaid(double annualFee, int year) {
+            AnnualFeeDetail detail = new AnnualFeeDetail();
+            detail.setTotal(annualFee);
+            detail.setPaid(0.0);
+            detail.setPending(annualFee);
+            detail.setStatus("PENDING");
+            detail.setDueDate(LocalDateTime.of(year, 1, 31, 0, 0));
+            return detail;
+        }
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.studentmanagement.system.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -11,6 +12,7 @@ public class Students {
     @Id
     private String id;  // Auto-generated by MongoDB
 
+    @Indexed(unique = true, sparse = true)
     private String studentId;
     private String firstName;
     private String lastName;
@@ -22,11 +24,15 @@ public class Students {
     private String phoneNumber;
     private String dateOfBirth;
     private String enrollmentDate;
+    @Indexed
     private String className;
     private String weight;
     private String height;
+    @Indexed
     private String teacherId;
 
     // Image-related field
+    @Indexed(sparse = true)  // Orphan file sweeper checks upload names in batches
     private String profileImageUrl;  // Stores the URL or file path of the uploaded image
+    private String profileImageContentType;  // Detected once at upload; null for older uploads
 }
\ No newline at end of file
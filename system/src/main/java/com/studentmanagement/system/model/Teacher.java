@@ -2,6 +2,7 @@ package com.studentmanagement.system.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -10,10 +11,12 @@ public class Teacher {
 
     @Id
     private String id;         // MongoDB ObjectId
+    @Indexed(unique = true, sparse = true)
     private String teacherId;  // Human-readable ID (e.g. T001)
     private String fullName;
     private String email;
     private String phone;
+    @Indexed
     private String subject;    // Optional
     private String address;    // Optional
     private String hireDate;  // Optional
@@ -3,6 +3,7 @@ package com.studentmanagement.system.model;
 import com.studentmanagement.system.dto.CreateTeacherRequest;
 import com.studentmanagement.system.dto.UpdateTeacherRequest;
 import com.studentmanagement.system.dto.TeacherResponse;
+import com.studentmanagement.system.dto.TeacherSummaryResponse;
 import com.studentmanagement.system.model.Teacher;
 
 public class TeacherMapper {
@@ -43,6 +44,17 @@ public class TeacherMapper {
         return res;
     }
 
+    /**
+     * Convert Teacher → TeacherSummaryResponse
+     */
+    public static TeacherSummaryResponse toSummaryResponse(Teacher teacher) {
+        return TeacherSummaryResponse.builder()
+                .teacherId(teacher.getTeacherId())
+                .fullName(teacher.getFullName())
+                .subject(teacher.getSubject())
+                .build();
+    }
+
     /**
      * Merge UpdateTeacherRequest into existing Teacher
      */
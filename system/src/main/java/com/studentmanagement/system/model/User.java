@@ -2,6 +2,7 @@ package com.studentmanagement.system.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -11,8 +12,10 @@ public class User {
     @Id
     private String id;
 
+    @Indexed(unique = true, sparse = true)
     private String username;      // e.g., "admin" or "T001"
     private String password;      // Store hashed password
+    @Indexed
     private String role;          // "ADMIN" or "TEACHER"
     private String teacherId;     // Only for teachers, null for admin
     private String fullName;      // Display name
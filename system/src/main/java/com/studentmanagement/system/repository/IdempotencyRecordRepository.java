@@ -0,0 +1,9 @@
+package com.studentmanagement.system.repository;
+
+import com.studentmanagement.system.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String> {
+}
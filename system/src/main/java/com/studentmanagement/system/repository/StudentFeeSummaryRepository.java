@@ -4,6 +4,7 @@ import com.studentmanagement.system.model.StudentFeeSummary;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,8 @@ public interface StudentFeeSummaryRepository extends MongoRepository<StudentFeeS
 
     Optional<StudentFeeSummary> findByStudentId(String studentId);
 
+    List<StudentFeeSummary> findByStudentIdIn(Collection<String> studentIds);
+
     List<StudentFeeSummary> findByClassName(String className);
 
     List<StudentFeeSummary> findByTotalPendingAmountGreaterThan(Double amount);
@@ -1,9 +1,11 @@
 package com.studentmanagement.system.repository;
 
+import com.studentmanagement.system.dto.StudentSummaryResponse;
 import com.studentmanagement.system.model.Students;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +28,19 @@ public interface StudentRepository extends MongoRepository<Students, String> {
     boolean existsByStudentId(String studentId);
     List<Students> findByTeacherId(String teacherId);
 
+    /**
+     * Find all students with one of the given studentIds
+     */
+    List<Students> findByStudentIdIn(Collection<String> studentIds);
+
+    /**
+     * Find roster summaries by class name (reads only the summary fields)
+     */
+    List<StudentSummaryResponse> findSummaryByClassName(String className);
+
+    /**
+     * Find roster summaries by teacher (reads only the summary fields)
+     */
+    List<StudentSummaryResponse> findSummaryByTeacherId(String teacherId);
+
 }
\ No newline at end of file
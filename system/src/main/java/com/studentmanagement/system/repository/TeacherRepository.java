@@ -1,5 +1,6 @@
 package com.studentmanagement.system.repository;
 
+import com.studentmanagement.system.dto.TeacherSummaryResponse;
 import com.studentmanagement.system.model.Teacher;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
@@ -11,4 +12,6 @@ public interface TeacherRepository extends MongoRepository<Teacher, String> {
     Optional<Teacher> findByTeacherId(String teacherId);
 
     List<Teacher> findBySubject(String subject);
+
+    List<TeacherSummaryResponse> findAllProjectedBy();
 }
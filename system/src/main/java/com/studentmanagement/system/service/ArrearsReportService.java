@@ -0,0 +1,161 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.dto.ArrearsReportResponse;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Arrears per student or per class, computed by the server from fee summaries
+ * with pending fees. Only the totals are projected, so the monthly and annual
+ * fee maps never leave the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class ArrearsReportService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final int STREAM_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public enum GroupBy { STUDENT, CLASS }
+
+    /**
+     * One page of arrears sorted by pending amount, with the overall count and total,
+     * in a single aggregation
+     */
+    public ArrearsReportResponse getArrears(GroupBy groupBy, String className, boolean ascending,
+                                            int page, int size) {
+        List<Document> pipeline = rowsPipeline(groupBy, className);
+        pipeline.add(new Document("$facet", new Document("items", List.of(
+                sortStage(ascending),
+                new Document("$skip", (long) page * size),
+                new Document("$limit", size)))
+                .append("totals", List.of(new Document("$group", new Document("_id", null)
+                        .append("count", new Document("$sum", 1))
+                        .append("pendingAmount", new Document("$sum", "$pendingAmount")))))));
+
+        Document result = mongoTemplate.getCollection(mongoTemplate.getCollectionName(StudentFeeSummary.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .first();
+
+        List<ArrearsReportResponse.Row> items = new ArrayList<>();
+        long totalItems = 0;
+        double totalPendingAmount = 0;
+        if (result != null) {
+            for (Document row : result.getList("items", Document.class)) {
+                items.add(toRow(row));
+            }
+            List<Document> totals = result.getList("totals", Document.class);
+            if (!totals.isEmpty()) {
+                totalItems = ((Number) totals.get(0).get("count")).longValue();
+                totalPendingAmount = number(totals.get(0), "pendingAmount");
+            }
+        }
+
+        return ArrearsReportResponse.builder()
+                .groupBy(groupBy.name().toLowerCase(Locale.ROOT))
+                .page(page)
+                .size(items.size())
+                .totalItems(totalItems)
+                .totalPendingAmount(totalPendingAmount)
+                .items(items)
+                .build();
+    }
+
+    /**
+     * Stream every arrears row sorted by pending amount from the aggregation cursor
+     */
+    public void streamArrears(GroupBy groupBy, String className, boolean ascending,
+                              Consumer<ArrearsReportResponse.Row> consumer) {
+        AppLogger.info("Streaming arrears by " + groupBy.name().toLowerCase(Locale.ROOT));
+
+        List<Document> pipeline = rowsPipeline(groupBy, className);
+        pipeline.add(sortStage(ascending));
+
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(StudentFeeSummary.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .batchSize(STREAM_BATCH_SIZE)
+                .forEach(row -> consumer.accept(toRow(row)));
+    }
+
+    private List<Document> rowsPipeline(GroupBy groupBy, String className) {
+        // The totalPendingAmount index serves the match
+        Document match = new Document("totalPendingAmount", new Document("$gt", 0));
+        if (className != null) {
+            match.append("className", className);
+        }
+
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", match));
+        if (groupBy == GroupBy.CLASS) {
+            pipeline.add(new Document("$group", new Document("_id", "$className")
+                    .append("students", new Document("$sum", 1))
+                    .append("totalFeesAmount", new Document("$sum", "$totalFeesAmount"))
+                    .append("totalPaidAmount", new Document("$sum", "$totalPaidAmount"))
+                    .append("pendingAmount", new Document("$sum", "$totalPendingAmount"))));
+            pipeline.add(new Document("$project", new Document("_id", 0)
+                    .append("className", "$_id")
+                    .append("students", 1)
+                    .append("totalFeesAmount", 1)
+                    .append("totalPaidAmount", 1)
+                    .append("pendingAmount", 1)));
+        } else {
+            pipeline.add(new Document("$project", new Document("_id", 0)
+                    .append("studentId", 1)
+                    .append("studentName", 1)
+                    .append("className", 1)
+                    .append("totalFeesAmount", 1)
+                    .append("totalPaidAmount", 1)
+                    .append("pendingAmount", "$totalPendingAmount")
+                    .append("lastPaymentDate", 1)));
+        }
+        return pipeline;
+    }
+
+    private Document sortStage(boolean ascending) {
+        int direction = ascending ? 1 : -1;
+        // Tie-breakers keep pages stable between calls
+        return new Document("$sort", new Document("pendingAmount", direction)
+                .append("className", 1)
+                .append("studentId", 1));
+    }
+
+    private ArrearsReportResponse.Row toRow(Document row) {
+        Number students = (Number) row.get("students");
+        Date lastPaymentDate = row.getDate("lastPaymentDate");
+        return ArrearsReportResponse.Row.builder()
+                .studentId(row.getString("studentId"))
+                .studentName(row.getString("studentName"))
+                .className(row.getString("className"))
+                .students(students != null ? students.longValue() : null)
+                .totalFeesAmount(number(row, "totalFeesAmount"))
+                .totalPaidAmount(number(row, "totalPaidAmount"))
+                .pendingAmount(number(row, "pendingAmount"))
+                .lastPaymentDate(lastPaymentDate != null
+                        ? LocalDateTime.ofInstant(lastPaymentDate.toInstant(), ZoneId.systemDefault())
+                        : null)
+                .build();
+    }
+
+    private double number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number number ? number.doubleValue() : 0;
+    }
+}
@@ -0,0 +1,276 @@
+package com.studentmanagement.system.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studentmanagement.system.model.Payment;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.CsvWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams students, payments and fee summaries as CSV or NDJSON straight from
+ * a Mongo cursor. The driver fetches the next batch only when the previous one
+ * has been written, and writes block while the client is slow to read, so an
+ * export of any size runs in the memory of one cursor batch.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    public enum Format { CSV, NDJSON }
+
+    public enum Dataset {
+        STUDENTS("students"),
+        PAYMENTS("payments"),
+        FEE_SUMMARIES("fee-summaries");
+
+        private final String path;
+
+        Dataset(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Dataset for the URL segment, or null when there is none
+         */
+        public static Dataset fromPath(String path) {
+            for (Dataset dataset : values()) {
+                if (dataset.path.equals(path)) {
+                    return dataset;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final List<Column<Students>> STUDENT_COLUMNS = List.of(
+            new Column<>("studentId", "studentId", Students::getStudentId),
+            new Column<>("firstName", "firstName", Students::getFirstName),
+            new Column<>("lastName", "lastName", Students::getLastName),
+            new Column<>("fullName", "fullName", Students::getFullName),
+            new Column<>("email", "email", Students::getEmail),
+            new Column<>("guardianName", "GuardianName", Students::getGuardianName),
+            new Column<>("guardianContact", "GuardianContact", Students::getGuardianContact),
+            new Column<>("address", "address", Students::getAddress),
+            new Column<>("phoneNumber", "phoneNumber", Students::getPhoneNumber),
+            new Column<>("dateOfBirth", "dateOfBirth", Students::getDateOfBirth),
+            new Column<>("enrollmentDate", "enrollmentDate", Students::getEnrollmentDate),
+            new Column<>("className", "className", Students::getClassName),
+            new Column<>("teacherId", "teacherId", Students::getTeacherId)
+    );
+
+    private static final List<Column<Payment>> PAYMENT_COLUMNS = List.of(
+            new Column<>("paymentId", "paymentId", Payment::getPaymentId),
+            new Column<>("studentId", "studentId", Payment::getStudentId),
+            new Column<>("studentName", "studentName", Payment::getStudentName),
+            new Column<>("className", "className", Payment::getClassName),
+            new Column<>("paymentType", "paymentType", Payment::getPaymentType),
+            new Column<>("amountPaid", "amountPaid", Payment::getAmountPaid),
+            new Column<>("totalAmount", "totalAmount", Payment::getTotalAmount),
+            new Column<>("pendingAmount", "pendingAmount", Payment::getPendingAmount),
+            new Column<>("paymentMethod", "paymentMethod", Payment::getPaymentMethod),
+            new Column<>("transactionReference", "transactionReference", Payment::getTransactionReference),
+            new Column<>("paymentDate", "paymentDate", Payment::getPaymentDate),
+            new Column<>("paymentPeriod", "paymentPeriod", Payment::getPaymentPeriod),
+            new Column<>("month", "month", Payment::getMonth),
+            new Column<>("year", "year", Payment::getYear),
+            new Column<>("status", "status", Payment::getStatus),
+            new Column<>("remarks", "remarks", Payment::getRemarks),
+            new Column<>("createdBy", "createdBy", Payment::getCreatedBy)
+    );
+
+    private static final List<Column<StudentFeeSummary>> FEE_SUMMARY_COLUMNS = List.of(
+            new Column<>("studentId", "studentId", StudentFeeSummary::getStudentId),
+            new Column<>("studentName", "studentName", StudentFeeSummary::getStudentName),
+            new Column<>("className", "className", StudentFeeSummary::getClassName),
+            new Column<>("admissionFeeTotal", "admissionFeeTotal", StudentFeeSummary::getAdmissionFeeTotal),
+            new Column<>("admissionFeePaid", "admissionFeePaid", StudentFeeSummary::getAdmissionFeePaid),
+            new Column<>("admissionFeePending", "admissionFeePending", StudentFeeSummary::getAdmissionFeePending),
+            new Column<>("admissionFeeCompleted", "admissionFeeCompleted", StudentFeeSummary::getAdmissionFeeCompleted),
+            new Column<>("totalFeesAmount", "totalFeesAmount", StudentFeeSummary::getTotalFeesAmount),
+            new Column<>("totalPaidAmount", "totalPaidAmount", StudentFeeSummary::getTotalPaidAmount),
+            new Column<>("totalPendingAmount", "totalPendingAmount", StudentFeeSummary::getTotalPendingAmount),
+            new Column<>("lastPaymentDate", "lastPaymentDate", StudentFeeSummary::getLastPaymentDate)
+    );
+
+    /**
+     * Write the dataset to the stream. className and the inclusive from/to dates are
+     * optional; dates filter enrollmentDate for students, paymentDate for payments
+     * and lastPaymentDate for fee summaries.
+     */
+    public void export(Dataset dataset, Format format, boolean gzip,
+                       String className, LocalDate from, LocalDate to,
+                       OutputStream target) throws IOException {
+
+        long started = System.currentTimeMillis();
+        OutputStream out = gzip
+                ? new GZIPOutputStream(target, OUTPUT_BUFFER_SIZE)
+                : new BufferedOutputStream(target, OUTPUT_BUFFER_SIZE);
+
+        long rows;
+        try (out) {
+            rows = switch (dataset) {
+                case STUDENTS -> write(studentQuery(className, from, to), Students.class,
+                        STUDENT_COLUMNS, format, out);
+                case PAYMENTS -> write(paymentQuery(className, from, to), Payment.class,
+                        PAYMENT_COLUMNS, format, out);
+                case FEE_SUMMARIES -> write(feeSummaryQuery(className, from, to), StudentFeeSummary.class,
+                        FEE_SUMMARY_COLUMNS, format, out);
+            };
+        } catch (IOException | RuntimeException e) {
+            // Headers are already sent; the client sees a truncated body
+            AppLogger.error("Export of " + dataset.getPath() + " aborted: " + e.getMessage());
+            throw e;
+        }
+
+        AppLogger.info("Exported " + rows + " " + dataset.getPath() + " as " + format
+                + " in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private Query studentQuery(String className, LocalDate from, LocalDate to) {
+        Query query = new Query();
+        if (className != null) {
+            query.addCriteria(Criteria.where("className").is(className));
+        }
+        // enrollmentDate is stored as an ISO yyyy-MM-dd string, which sorts like the date
+        if (from != null || to != null) {
+            Criteria enrolled = Criteria.where("enrollmentDate");
+            if (from != null) {
+                enrolled.gte(from.toString());
+            }
+            if (to != null) {
+                enrolled.lte(to.toString());
+            }
+            query.addCriteria(enrolled);
+        }
+        return query;
+    }
+
+    private Query paymentQuery(String className, LocalDate from, LocalDate to) {
+        Query query = new Query();
+        if (className != null) {
+            // The class the payment was made in, not the student's class today
+            Criteria inClass = Criteria.where("className").is(className);
+            Query withoutClass = Query.query(Criteria.where("className").exists(false));
+            if (mongoTemplate.exists(withoutClass, Payment.class)) {
+                // Payments saved before className was copied onto them take the student's class;
+                // a class holds few enough students for one $in
+                List<String> studentIds = mongoTemplate.findDistinct(
+                        Query.query(Criteria.where("className").is(className)),
+                        "studentId", Students.class, String.class);
+                inClass = new Criteria().orOperator(inClass,
+                        Criteria.where("className").exists(false).and("studentId").in(studentIds));
+            }
+            query.addCriteria(inClass);
+        }
+        addDateRange(query, "paymentDate", from, to);
+        return query;
+    }
+
+    private Query feeSummaryQuery(String className, LocalDate from, LocalDate to) {
+        Query query = new Query();
+        if (className != null) {
+            query.addCriteria(Criteria.where("className").is(className));
+        }
+        addDateRange(query, "lastPaymentDate", from, to);
+        return query;
+    }
+
+    private void addDateRange(Query query, String field, LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return;
+        }
+        Criteria range = Criteria.where(field);
+        if (from != null) {
+            range.gte(from.atStartOfDay());
+        }
+        if (to != null) {
+            range.lt(to.plusDays(1).atStartOfDay());
+        }
+        query.addCriteria(range);
+    }
+
+    /**
+     * Stream the query results through the encoder; returns the number of rows written.
+     * No sort is applied: a blocking sort over millions of rows would hit the server's
+     * in-memory sort limit, while an unsorted cursor streams from the filter's index.
+     */
+    private <T> long write(Query query, Class<T> type, List<Column<T>> columns,
+                           Format format, OutputStream out) throws IOException {
+        for (Column<T> column : columns) {
+            query.fields().include(column.field());
+        }
+        query.cursorBatchSize(EXPORT_BATCH_SIZE);
+
+        long rows = 0;
+        try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+            Iterator<T> iterator = documents.iterator();
+            if (format == Format.CSV) {
+                CsvWriter csv = new CsvWriter(new BufferedWriter(
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE));
+                for (Column<T> column : columns) {
+                    csv.writeField(column.header());
+                }
+                csv.endRecord();
+                while (iterator.hasNext()) {
+                    T document = iterator.next();
+                    for (Column<T> column : columns) {
+                        csv.writeField(column.value().apply(document));
+                    }
+                    csv.endRecord();
+                    rows++;
+                }
+                csv.flush();
+            } else {
+                while (iterator.hasNext()) {
+                    T document = iterator.next();
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (Column<T> column : columns) {
+                        row.put(column.header(), column.value().apply(document));
+                    }
+                    out.write(objectMapper.writeValueAsBytes(row));
+                    out.write('\n');
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * One exported column: its header (also the NDJSON key), the document field
+     * to project and the value accessor
+     */
+    private record Column<T>(String header, String field, Function<T, Object> value) {
+    }
+}
@@ -0,0 +1,456 @@
+package com.studentmanagement.system.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.studentmanagement.system.dto.LedgerRebuildReport;
+import com.studentmanagement.system.dto.SnapshotSeedReport;
+import com.studentmanagement.system.model.FeeSummarySnapshot;
+import com.studentmanagement.system.model.LedgerEntry;
+import com.studentmanagement.system.model.Payment;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.SnowflakeIdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds fee summaries as projections of the payment ledger. Students are
+ * split into partitions that a fork-join pool replays in parallel; each
+ * partition reads its snapshots, only the ledger entries after them, and
+ * writes new snapshots and corrected summaries with two bulk writes.
+ *
+ * A summary is read before the ledger and written back only if its version is
+ * unchanged. Writers record the ledger entry before changing the summary, so
+ * every change in the version read is also in the entries read. The reverse does
+ * not hold: an entry read may not have reached the summary yet, and overwriting
+ * the summary would let its pending $inc count it twice. So a summary is only
+ * written when all of the student's entries are older than the settle window,
+ * within which writers finish applying (or reversing) what they recorded.
+ */
+@Service
+@RequiredArgsConstructor
+public class FeeLedgerRebuildService {
+
+    private static final int PARTITION_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final SnowflakeIdGenerator snowflakeIdGenerator;
+    private final LedgerService ledgerService;
+
+    @Value("${ledger.rebuild.parallelism:0}")
+    private int parallelism;
+
+    @Value("${ledger.snapshot.enabled:true}")
+    private boolean snapshotsEnabled;
+
+    // Entries younger than this stay in the tail: an entry from another node can
+    // still arrive with a slightly smaller ID and must not fall behind a snapshot
+    @Value("${ledger.snapshot.settle-minutes:5}")
+    private long settleMinutes;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile LedgerRebuildReport lastReport;
+
+    @Scheduled(initialDelayString = "${ledger.snapshot.initial-delay-ms:900000}",
+            fixedDelayString = "${ledger.snapshot.interval-ms:86400000}")
+    public void scheduledSnapshots() {
+        if (snapshotsEnabled) {
+            rebuild(false);
+        }
+    }
+
+    /**
+     * Replay the ledger for every student, writing fresh snapshots and, with
+     * writeSummaries, every summary that differs from its projection.
+     * Returns null when a rebuild or seeding is already in progress.
+     */
+    public LedgerRebuildReport rebuild(boolean writeSummaries) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        LedgerRebuildReport report = new LedgerRebuildReport();
+        report.setStartedAt(LocalDateTime.now());
+        report.setWriteSummaries(writeSummaries);
+        report.setParallelism(threads);
+
+        RebuildRun run = new RebuildRun(writeSummaries);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<String> studentIds = findStudentIds();
+            report.setStudents(studentIds.size());
+            pool.invoke(new PartitionTask(studentIds, 0, studentIds.size(), run));
+        } catch (RuntimeException e) {
+            AppLogger.error("Fee ledger rebuild failed: " + e.getMessage());
+            report.setError(e.getMessage());
+        } finally {
+            pool.shutdown();
+            run.fill(report);
+            report.setFinishedAt(LocalDateTime.now());
+            lastReport = report;
+            running.set(false);
+        }
+
+        AppLogger.info("Fee ledger rebuild: " + report.getStudents() + " students, "
+                + report.getReplayedEntries() + " entries replayed, "
+                + report.getSnapshotsWritten() + " snapshots written, "
+                + report.getUpdatedSummaries() + " of " + report.getMismatchedSummaries()
+                + " mismatched summaries corrected, " + report.getConflictedSummaries() + " conflicts, "
+                + report.getDeferredSummaries() + " deferred");
+        return report;
+    }
+
+    /**
+     * Report of the most recent rebuild, null before the first one
+     */
+    public LedgerRebuildReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Snapshot every summary that has none, taking it to contain all ledger entries
+     * recorded so far. This adopts balances from before the ledger existed; run it
+     * once, while no payments are being taken. Returns null when busy.
+     */
+    public SnapshotSeedReport seedSnapshots() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        SnapshotSeedReport report = new SnapshotSeedReport();
+        report.setStartedAt(LocalDateTime.now());
+        String lastEntryId = snowflakeIdGenerator.nextId();
+        report.setLastEntryId(lastEntryId);
+
+        Query query = new Query().cursorBatchSize(PARTITION_SIZE);
+        List<StudentFeeSummary> batch = new ArrayList<>(PARTITION_SIZE);
+        try (Stream<StudentFeeSummary> summaries = mongoTemplate.stream(query, StudentFeeSummary.class)) {
+            for (StudentFeeSummary summary : (Iterable<StudentFeeSummary>) summaries::iterator) {
+                batch.add(summary);
+                if (batch.size() == PARTITION_SIZE) {
+                    seedBatch(batch, lastEntryId, report);
+                    batch.clear();
+                }
+            }
+            seedBatch(batch, lastEntryId, report);
+        } finally {
+            report.setFinishedAt(LocalDateTime.now());
+            running.set(false);
+        }
+
+        AppLogger.info("Seeded " + report.getSeededSnapshots() + " fee summary snapshots from "
+                + report.getScannedSummaries() + " summaries");
+        return report;
+    }
+
+    private void seedBatch(List<StudentFeeSummary> summaries, String lastEntryId, SnapshotSeedReport report) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        report.setScannedSummaries(report.getScannedSummaries() + summaries.size());
+
+        Set<String> snapshotted = findSnapshots(summaries.stream()
+                .map(StudentFeeSummary::getStudentId)
+                .collect(Collectors.toList())).keySet();
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FeeSummarySnapshot.class);
+        int seeded = 0;
+        for (StudentFeeSummary summary : summaries) {
+            if (summary.getStudentId() != null && !snapshotted.contains(summary.getStudentId())) {
+                ops.insert(FeeSummaryProjector.snapshotOf(summary, summary.getStudentId(), lastEntryId, now));
+                seeded++;
+            }
+        }
+        if (seeded == 0) {
+            return;
+        }
+        try {
+            report.setSeededSnapshots(report.getSeededSnapshots() + ops.execute().getInsertedCount());
+        } catch (BulkOperationException e) {
+            // A concurrent snapshot run got there first; that snapshot is newer
+            report.setSeededSnapshots(report.getSeededSnapshots() + e.getResult().getInsertedCount());
+        }
+    }
+
+    /**
+     * Students with ledger entries or a snapshot, sorted so partitions read adjacent index ranges
+     */
+    private List<String> findStudentIds() {
+        Set<String> studentIds = new TreeSet<>(mongoTemplate.findDistinct(
+                new Query(), "studentId", LedgerEntry.class, String.class));
+
+        Query snapshots = new Query();
+        snapshots.fields().include("_id");
+        mongoTemplate.find(snapshots, FeeSummarySnapshot.class)
+                .forEach(snapshot -> studentIds.add(snapshot.getStudentId()));
+        return new ArrayList<>(studentIds);
+    }
+
+    /**
+     * Splits the students until a partition is small enough to replay with a few queries
+     */
+    private class PartitionTask extends RecursiveAction {
+
+        private final List<String> studentIds;
+        private final int from;
+        private final int to;
+        private final RebuildRun run;
+
+        PartitionTask(List<String> studentIds, int from, int to, RebuildRun run) {
+            this.studentIds = studentIds;
+            this.from = from;
+            this.to = to;
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARTITION_SIZE) {
+                rebuildPartition(studentIds.subList(from, to), run);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PartitionTask(studentIds, from, middle, run),
+                    new PartitionTask(studentIds, middle, to, run));
+        }
+    }
+
+    private void rebuildPartition(List<String> studentIds, RebuildRun run) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        try {
+            // Summaries first: their versions must predate the entries read below
+            Map<String, StudentFeeSummary> summaries = run.writeSummaries ? findSummaries(studentIds) : Map.of();
+            Map<String, FeeSummarySnapshot> snapshots = findSnapshots(studentIds);
+            Map<String, List<LedgerEntry>> tails = findTails(studentIds, snapshots);
+
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime settledBefore = now.minusMinutes(settleMinutes);
+            BulkOperations snapshotOps = mongoTemplate.bulkOps(
+                    BulkOperations.BulkMode.UNORDERED, FeeSummarySnapshot.class);
+            BulkOperations summaryOps = mongoTemplate.bulkOps(
+                    BulkOperations.BulkMode.UNORDERED, StudentFeeSummary.class);
+            int snapshotWrites = 0;
+            int summaryWrites = 0;
+
+            for (String studentId : studentIds) {
+                if (ledgerService.hasPendingReversals(studentId)) {
+                    // A payment the summary never took is still in the ledger; neither snapshot nor write it
+                    run.deferredSummaries.incrementAndGet();
+                    continue;
+                }
+                FeeSummarySnapshot snapshot = snapshots.get(studentId);
+                List<LedgerEntry> tail = tails.getOrDefault(studentId, List.of());
+                if (snapshot == null && tail.stream().noneMatch(this::isAdmissionCharge)) {
+                    run.unseeded.incrementAndGet();
+                    continue;
+                }
+
+                FeeSummaryProjector projector = snapshot != null
+                        ? new FeeSummaryProjector(snapshot)
+                        : new FeeSummaryProjector();
+                projector.skipReversed(tail);
+                // The snapshot covers the prefix of entries old enough to have settled
+                FeeSummarySnapshot settled = null;
+                String settledEntryId = null;
+                boolean inSettledPrefix = true;
+                for (LedgerEntry entry : tail) {
+                    if (inSettledPrefix && (entry.getCreatedAt() == null
+                            || !entry.getCreatedAt().isBefore(settledBefore))) {
+                        inSettledPrefix = false;
+                        if (settledEntryId != null) {
+                            settled = projector.toSnapshot(studentId, settledEntryId, now);
+                        }
+                    }
+                    if (!projector.apply(entry)) {
+                        run.orphanEntries.incrementAndGet();
+                    }
+                    if (inSettledPrefix) {
+                        settledEntryId = entry.getEntryId();
+                    }
+                }
+                if (inSettledPrefix && settledEntryId != null) {
+                    settled = projector.toSnapshot(studentId, settledEntryId, now);
+                }
+                if (settled != null) {
+                    snapshotOps.replaceOne(Query.query(Criteria.where("_id").is(studentId)), settled,
+                            FindAndReplaceOptions.options().upsert());
+                    snapshotWrites++;
+                }
+                run.replayedEntries.addAndGet(tail.size());
+
+                if (!run.writeSummaries) {
+                    continue;
+                }
+                StudentFeeSummary current = summaries.get(studentId);
+                if (current == null) {
+                    run.missingSummaries.incrementAndGet();
+                    continue;
+                }
+                if (!inSettledPrefix) {
+                    // A recent entry may still be on its way to the summary
+                    run.deferredSummaries.incrementAndGet();
+                    continue;
+                }
+                StudentFeeSummary projected = projector.finish(now);
+                if (FeeSummaryProjector.sameBalances(current, projected)) {
+                    continue;
+                }
+                run.mismatchedSummaries.incrementAndGet();
+                summaryOps.updateOne(
+                        Query.query(Criteria.where("_id").is(current.getId()).and("version").is(current.getVersion())),
+                        summaryUpdate(projected, now));
+                summaryWrites++;
+            }
+
+            if (snapshotWrites > 0) {
+                BulkWriteResult result = snapshotOps.execute();
+                run.snapshotsWritten.addAndGet(result.getMatchedCount() + result.getUpserts().size());
+            }
+            if (summaryWrites > 0) {
+                int matched = summaryOps.execute().getMatchedCount();
+                run.updatedSummaries.addAndGet(matched);
+                run.conflictedSummaries.addAndGet(summaryWrites - matched);
+            }
+        } catch (RuntimeException e) {
+            AppLogger.error("Fee ledger rebuild of " + studentIds.size() + " students from "
+                    + studentIds.get(0) + " failed: " + e.getMessage());
+            run.failedPartitions.incrementAndGet();
+        }
+    }
+
+    private boolean isAdmissionCharge(LedgerEntry entry) {
+        return entry.getType() == LedgerEntry.EntryType.CHARGE
+                && entry.getFeeType() == Payment.PaymentType.ADMISSION;
+    }
+
+    /**
+     * Replace the balances, statuses and nextDueDate; identity fields stay as they are
+     */
+    private Update summaryUpdate(StudentFeeSummary projected, LocalDateTime now) {
+        Update update = new Update()
+                .set("admissionFeeTotal", projected.getAdmissionFeeTotal())
+                .set("admissionFeePaid", projected.getAdmissionFeePaid())
+                .set("admissionFeePending", projected.getAdmissionFeePending())
+                .set("admissionFeeCompleted", projected.getAdmissionFeeCompleted())
+                .set("monthlyFees", projected.getMonthlyFees())
+                .set("annualFees", projected.getAnnualFees())
+                .set("totalFeesAmount", projected.getTotalFeesAmount())
+                .set("totalPaidAmount", projected.getTotalPaidAmount())
+                .set("totalPendingAmount", projected.getTotalPendingAmount())
+                .set("updatedAt", now)
+                .inc("version", 1);
+        if (projected.getLastPaymentDate() != null) {
+            update.set("lastPaymentDate", projected.getLastPaymentDate());
+        }
+        if (projected.getNextDueDate() != null) {
+            update.set("nextDueDate", projected.getNextDueDate());
+        } else {
+            update.unset("nextDueDate");
+        }
+        return update;
+    }
+
+    private Map<String, StudentFeeSummary> findSummaries(List<String> studentIds) {
+        return mongoTemplate.find(Query.query(Criteria.where("studentId").in(studentIds)), StudentFeeSummary.class)
+                .stream()
+                .collect(Collectors.toMap(StudentFeeSummary::getStudentId, Function.identity(), (a, b) -> a));
+    }
+
+    private Map<String, FeeSummarySnapshot> findSnapshots(List<String> studentIds) {
+        return mongoTemplate.find(Query.query(Criteria.where("_id").in(studentIds)), FeeSummarySnapshot.class)
+                .stream()
+                .collect(Collectors.toMap(FeeSummarySnapshot::getStudentId, Function.identity()));
+    }
+
+    /**
+     * Entries after each student's snapshot (all entries without one), grouped by
+     * student in replay order, with one query on the studentId/entryId index
+     */
+    private Map<String, List<LedgerEntry>> findTails(List<String> studentIds,
+                                                     Map<String, FeeSummarySnapshot> snapshots) {
+        List<Criteria> ranges = new ArrayList<>();
+        List<String> withoutSnapshot = new ArrayList<>();
+        for (String studentId : studentIds) {
+            FeeSummarySnapshot snapshot = snapshots.get(studentId);
+            if (snapshot != null && snapshot.getLastEntryId() != null) {
+                ranges.add(Criteria.where("studentId").is(studentId).and("entryId").gt(snapshot.getLastEntryId()));
+            } else {
+                withoutSnapshot.add(studentId);
+            }
+        }
+        if (!withoutSnapshot.isEmpty()) {
+            ranges.add(Criteria.where("studentId").in(withoutSnapshot));
+        }
+
+        Query query = Query.query(new Criteria().orOperator(ranges.toArray(new Criteria[0])))
+                .with(Sort.by(Sort.Direction.ASC, "studentId", "entryId"));
+        Map<String, List<LedgerEntry>> tails = new LinkedHashMap<>();
+        for (LedgerEntry entry : mongoTemplate.find(query, LedgerEntry.class)) {
+            tails.computeIfAbsent(entry.getStudentId(), k -> new ArrayList<>()).add(entry);
+        }
+        return tails;
+    }
+
+    /**
+     * Counters shared by the partitions of one rebuild
+     */
+    private static class RebuildRun {
+
+        private final boolean writeSummaries;
+        private final AtomicLong unseeded = new AtomicLong();
+        private final AtomicLong replayedEntries = new AtomicLong();
+        private final AtomicLong orphanEntries = new AtomicLong();
+        private final AtomicLong snapshotsWritten = new AtomicLong();
+        private final AtomicLong mismatchedSummaries = new AtomicLong();
+        private final AtomicLong updatedSummaries = new AtomicLong();
+        private final AtomicLong conflictedSummaries = new AtomicLong();
+        private final AtomicLong missingSummaries = new AtomicLong();
+        private final AtomicLong deferredSummaries = new AtomicLong();
+        private final AtomicLong failedPartitions = new AtomicLong();
+
+        RebuildRun(boolean writeSummaries) {
+            this.writeSummaries = writeSummaries;
+        }
+
+        void fill(LedgerRebuildReport report) {
+            report.setUnseededStudents(unseeded.get());
+            report.setReplayedEntries(replayedEntries.get());
+            report.setOrphanEntries(orphanEntries.get());
+            report.setSnapshotsWritten(snapshotsWritten.get());
+            report.setMismatchedSummaries(mismatchedSummaries.get());
+            report.setUpdatedSummaries(updatedSummaries.get());
+            report.setConflictedSummaries(conflictedSummaries.get());
+            report.setMissingSummaries(missingSummaries.get());
+            report.setDeferredSummaries(deferredSummaries.get());
+            report.setFailedPartitions(failedPartitions.get());
+        }
+    }
+}
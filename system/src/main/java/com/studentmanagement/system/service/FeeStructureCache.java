@@ -0,0 +1,135 @@
+package com.studentmanagement.system.service;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.studentmanagement.system.model.FeeStructure;
+import com.studentmanagement.system.repository.FeeStructureRepository;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache of active fee structures keyed by class name.
+ * Fee structures change a few times a year, so payments should not hit Mongo for them.
+ * Invalidated by FeeStructureService and, optionally, by a change stream on
+ * fee_structure so that edits made through another node are picked up too;
+ * without it, the TTL bounds how long such edits go unseen.
+ */
+@Service
+@RequiredArgsConstructor
+public class FeeStructureCache {
+
+    private static final long CHANGE_STREAM_RETRY_MILLIS = 5000;
+
+    private final FeeStructureRepository feeStructureRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${fee-structure.cache.max-entries:256}")
+    private int maxEntries;
+
+    @Value("${fee-structure.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${fee-structure.cache.change-stream-enabled:false}")
+    private boolean changeStreamEnabled;
+
+    // Only found fee structures are cached, so one created on another node is used right away
+    private LruCache<String, FeeStructure> cache;
+
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> changeStreamCursor;
+
+    @PostConstruct
+    void initCache() {
+        cache = new LruCache<>(maxEntries, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * Get the active fee structure for a class
+     */
+    public Optional<FeeStructure> getActive(String className) {
+        FeeStructure cached = cache.get(className);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<FeeStructure> feeStructure = feeStructureRepository.findByClassNameAndIsActive(className, true);
+        feeStructure.ifPresent(found -> cache.put(className, found));
+        return feeStructure;
+    }
+
+    public void evict(String className) {
+        cache.remove(className);
+    }
+
+    public void evictAll() {
+        cache.clear();
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Watch fee_structure for changes made by other nodes (requires a replica set)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startChangeStream() {
+        if (!changeStreamEnabled) {
+            return;
+        }
+        running = true;
+        Thread watcher = new Thread(this::watchChanges, "fee-structure-change-stream");
+        watcher.setDaemon(true);
+        watcher.start();
+        AppLogger.info("Watching fee_structure change stream for cache invalidation");
+    }
+
+    private void watchChanges() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor =
+                         mongoTemplate.getCollection("fee_structure").watch().cursor()) {
+                changeStreamCursor = cursor;
+                // Anything missed while (re)connecting is covered by clearing once connected
+                evictAll();
+                while (running) {
+                    cursor.next();
+                    // Delete events do not carry the class name, so drop everything
+                    evictAll();
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                AppLogger.warn("Fee structure change stream failed, retrying: " + e.getMessage());
+                evictAll();
+                try {
+                    Thread.sleep(CHANGE_STREAM_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void stopChangeStream() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changeStreamCursor;
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+}
@@ -11,12 +11,14 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class FeeStructureService {
 
     private final FeeStructureRepository feeStructureRepository;
+    private final FeeStructureCache feeStructureCache;
 
     /**
      * Create or update fee structure for a class
@@ -44,6 +46,7 @@ public class FeeStructureService {
         }
 
         FeeStructure saved = feeStructureRepository.save(feeStructure);
+        feeStructureCache.evict(saved.getClassName());
         AppLogger.info("Fee structure saved for class: " + saved.getClassName());
         return saved;
     }
@@ -66,12 +69,20 @@ public class FeeStructureService {
         return feeStructureRepository.findAll();
     }
 
+    /**
+     * Get hit/miss statistics of the active fee structure cache
+     */
+    public Map<String, Object> getCacheStats() {
+        return feeStructureCache.stats();
+    }
+
     /**
      * Delete fee structure
      */
     public boolean deleteFeeStructure(String className) {
         FeeStructure feeStructure = getFeeStructureByClass(className);
         feeStructureRepository.delete(feeStructure);
+        feeStructureCache.evict(className);
         AppLogger.info("Fee structure deleted for class: " + className);
         return true;
     }
@@ -0,0 +1,332 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.model.FeeSummarySnapshot;
+import com.studentmanagement.system.model.LedgerEntry;
+import com.studentmanagement.system.model.Payment;
+import com.studentmanagement.system.model.StudentFeeSummary;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Replays ledger entries onto fee balances with the same arithmetic as the live
+ * payment path: a charge, or a payment carrying its fee, only creates a fee entry
+ * that does not exist yet, and an overpayment is clamped to zero pending, raising
+ * the fee total by the excess so it stays paid plus pending. Reversed payments are
+ * skipped. Statuses and nextDueDate are derived once at the end, as the overdue
+ * job would set them.
+ */
+class FeeSummaryProjector {
+
+    private static final double TOLERANCE = 0.005;
+
+    private final StudentFeeSummary summary = new StudentFeeSummary();
+
+    private final Set<String> reversedPayments = new HashSet<>();
+    private final Set<String> skippedPayments = new HashSet<>();
+
+    /**
+     * Balances of a student without a snapshot
+     */
+    FeeSummaryProjector() {
+    }
+
+    FeeSummaryProjector(FeeSummarySnapshot snapshot) {
+        summary.setAdmissionFeeTotal(snapshot.getAdmissionFeeTotal());
+        summary.setAdmissionFeePaid(snapshot.getAdmissionFeePaid());
+        summary.setAdmissionFeePending(snapshot.getAdmissionFeePending());
+        summary.setMonthlyFees(copyMonthly(snapshot.getMonthlyFees()));
+        summary.setAnnualFees(copyAnnual(snapshot.getAnnualFees()));
+        summary.setTotalFeesAmount(snapshot.getTotalFeesAmount());
+        summary.setTotalPaidAmount(snapshot.getTotalPaidAmount());
+        summary.setTotalPendingAmount(snapshot.getTotalPendingAmount());
+        summary.setLastPaymentDate(snapshot.getLastPaymentDate());
+    }
+
+    /**
+     * Payments reversed by any of these entries are skipped when replayed. Call with
+     * all entries about to be applied, as a reversal comes after its payment.
+     */
+    void skipReversed(List<LedgerEntry> entries) {
+        for (LedgerEntry entry : entries) {
+            if (entry.getType() == LedgerEntry.EntryType.REVERSAL) {
+                reversedPayments.add(entry.getPaymentId());
+            }
+        }
+    }
+
+    /**
+     * Apply one entry; returns false when a payment or adjustment refers to a fee
+     * entry the balances do not have, or a reversal to a payment not skipped in
+     * this replay, in which case nothing changes
+     */
+    boolean apply(LedgerEntry entry) {
+        return switch (entry.getType()) {
+            case CHARGE -> charge(entry.getFeeType(), entry.getPeriod(), orZero(entry.getAmount()),
+                    entry.getDueDate());
+            case PAYMENT -> pay(entry);
+            case ADJUSTMENT -> adjust(entry);
+            case REVERSAL -> skippedPayments.contains(entry.getPaymentId());
+        };
+    }
+
+    private boolean charge(Payment.PaymentType feeType, String period, double amount, LocalDateTime dueDate) {
+        switch (feeType) {
+            case ADMISSION -> {
+                if (summary.getAdmissionFeeTotal() != null) {
+                    return true;
+                }
+                summary.setAdmissionFeeTotal(amount);
+                summary.setAdmissionFeePaid(0.0);
+                summary.setAdmissionFeePending(amount);
+            }
+            case MONTHLY -> {
+                if (summary.getMonthlyFees().containsKey(period)) {
+                    return true;
+                }
+                StudentFeeSummary.MonthlyFeeDetail detail = new StudentFeeSummary.MonthlyFeeDetail();
+                unpaid(detail, amount, dueDate);
+                summary.getMonthlyFees().put(period, detail);
+            }
+            case ANNUAL -> {
+                if (summary.getAnnualFees().containsKey(period)) {
+                    return true;
+                }
+                StudentFeeSummary.AnnualFeeDetail detail = new StudentFeeSummary.AnnualFeeDetail();
+                unpaid(detail, amount, dueDate);
+                summary.getAnnualFees().put(period, detail);
+            }
+        }
+        summary.setTotalFeesAmount(orZero(summary.getTotalFeesAmount()) + amount);
+        summary.setTotalPendingAmount(orZero(summary.getTotalPendingAmount()) + amount);
+        return true;
+    }
+
+    private boolean pay(LedgerEntry entry) {
+        if (reversedPayments.contains(entry.getPaymentId())) {
+            skippedPayments.add(entry.getPaymentId());
+            return true;
+        }
+        // The live path creates a monthly/annual entry on its first payment
+        if (entry.getFeeType() != Payment.PaymentType.ADMISSION && entry.getFeeAmount() != null) {
+            charge(entry.getFeeType(), entry.getPeriod(), entry.getFeeAmount(), entry.getDueDate());
+        }
+
+        double amount = orZero(entry.getAmount());
+        if (entry.getFeeType() == Payment.PaymentType.ADMISSION) {
+            if (summary.getAdmissionFeeTotal() == null) {
+                return false;
+            }
+            double pending = applyToTotals(orZero(summary.getAdmissionFeePending()) - amount, amount);
+            summary.setAdmissionFeePaid(orZero(summary.getAdmissionFeePaid()) + amount);
+            summary.setAdmissionFeePending(pending);
+        } else {
+            StudentFeeSummary.FeeDetail detail = detail(entry);
+            if (detail == null) {
+                return false;
+            }
+            double pending = applyToTotals(orZero(detail.getPending()) - amount, amount);
+            detail.setPaid(orZero(detail.getPaid()) + amount);
+            detail.setPending(pending);
+        }
+
+        if (summary.getLastPaymentDate() == null || entry.getCreatedAt().isAfter(summary.getLastPaymentDate())) {
+            summary.setLastPaymentDate(entry.getCreatedAt());
+        }
+        return true;
+    }
+
+    private boolean adjust(LedgerEntry entry) {
+        double amount = orZero(entry.getAmount());
+        if (entry.getFeeType() == Payment.PaymentType.ADMISSION) {
+            if (summary.getAdmissionFeeTotal() == null) {
+                return false;
+            }
+            summary.setAdmissionFeeTotal(summary.getAdmissionFeeTotal() + amount);
+            summary.setAdmissionFeePending(orZero(summary.getAdmissionFeePending()) + amount);
+        } else {
+            StudentFeeSummary.FeeDetail detail = detail(entry);
+            if (detail == null) {
+                return false;
+            }
+            detail.setTotal(orZero(detail.getTotal()) + amount);
+            detail.setPending(orZero(detail.getPending()) + amount);
+        }
+        summary.setTotalFeesAmount(orZero(summary.getTotalFeesAmount()) + amount);
+        summary.setTotalPendingAmount(orZero(summary.getTotalPendingAmount()) + amount);
+        return true;
+    }
+
+    /**
+     * Move an amount from pending to paid on the totals and return the entry's pending
+     * amount, clamped to zero when overpaid (PaymentService.applyToTotals)
+     */
+    private double applyToTotals(double pending, double amount) {
+        summary.setTotalPaidAmount(orZero(summary.getTotalPaidAmount()) + amount);
+        summary.setTotalPendingAmount(orZero(summary.getTotalPendingAmount()) - amount);
+        if (pending < 0) {
+            summary.setTotalPendingAmount(summary.getTotalPendingAmount() - pending);
+            summary.setTotalFeesAmount(orZero(summary.getTotalFeesAmount()) - pending);
+            return 0.0;
+        }
+        return pending;
+    }
+
+    private StudentFeeSummary.FeeDetail detail(LedgerEntry entry) {
+        return switch (entry.getFeeType()) {
+            case MONTHLY -> summary.getMonthlyFees().get(entry.getPeriod());
+            case ANNUAL -> summary.getAnnualFees().get(entry.getPeriod());
+            case ADMISSION -> null;
+        };
+    }
+
+    /**
+     * Snapshot of the balances so far; fee entries are copied, as replay goes on
+     */
+    FeeSummarySnapshot toSnapshot(String studentId, String lastEntryId, LocalDateTime takenAt) {
+        return snapshotOf(summary, studentId, lastEntryId, takenAt);
+    }
+
+    /**
+     * Snapshot of a maintained summary, used to seed students whose history predates the ledger
+     */
+    static FeeSummarySnapshot snapshotOf(StudentFeeSummary source, String studentId, String lastEntryId,
+                                         LocalDateTime takenAt) {
+        FeeSummarySnapshot snapshot = new FeeSummarySnapshot();
+        snapshot.setStudentId(studentId);
+        snapshot.setLastEntryId(lastEntryId);
+        snapshot.setTakenAt(takenAt);
+        snapshot.setAdmissionFeeTotal(source.getAdmissionFeeTotal());
+        snapshot.setAdmissionFeePaid(source.getAdmissionFeePaid());
+        snapshot.setAdmissionFeePending(source.getAdmissionFeePending());
+        snapshot.setMonthlyFees(copyMonthly(source.getMonthlyFees()));
+        snapshot.setAnnualFees(copyAnnual(source.getAnnualFees()));
+        snapshot.setTotalFeesAmount(source.getTotalFeesAmount());
+        snapshot.setTotalPaidAmount(source.getTotalPaidAmount());
+        snapshot.setTotalPendingAmount(source.getTotalPendingAmount());
+        snapshot.setLastPaymentDate(source.getLastPaymentDate());
+        return snapshot;
+    }
+
+    /**
+     * The projected balances with statuses, admissionFeeCompleted and nextDueDate as of now
+     */
+    StudentFeeSummary finish(LocalDateTime now) {
+        LocalDateTime nextDueDate = null;
+        for (StudentFeeSummary.FeeDetail detail : allDetails()) {
+            detail.setStatus(status(detail, now));
+            boolean unpaid = "PENDING".equals(detail.getStatus()) || "PARTIAL".equals(detail.getStatus());
+            if (unpaid && detail.getDueDate() != null
+                    && (nextDueDate == null || detail.getDueDate().isBefore(nextDueDate))) {
+                nextDueDate = detail.getDueDate();
+            }
+        }
+        summary.setNextDueDate(nextDueDate);
+        summary.setAdmissionFeeCompleted(summary.getAdmissionFeePending() != null
+                && summary.getAdmissionFeePending() <= 0);
+        return summary;
+    }
+
+    private static String status(StudentFeeSummary.FeeDetail detail, LocalDateTime now) {
+        if (orZero(detail.getPending()) <= 0) {
+            return "PAID";
+        }
+        if (detail.getDueDate() != null && detail.getDueDate().isBefore(now)) {
+            return "OVERDUE";
+        }
+        return orZero(detail.getPaid()) > 0 ? "PARTIAL" : "PENDING";
+    }
+
+    /**
+     * Whether a maintained summary already holds the projected amounts and statuses
+     */
+    static boolean sameBalances(StudentFeeSummary current, StudentFeeSummary projected) {
+        return same(current.getAdmissionFeeTotal(), projected.getAdmissionFeeTotal())
+                && same(current.getAdmissionFeePaid(), projected.getAdmissionFeePaid())
+                && same(current.getAdmissionFeePending(), projected.getAdmissionFeePending())
+                && same(current.getTotalFeesAmount(), projected.getTotalFeesAmount())
+                && same(current.getTotalPaidAmount(), projected.getTotalPaidAmount())
+                && same(current.getTotalPendingAmount(), projected.getTotalPendingAmount())
+                && sameDetails(current.getMonthlyFees(), projected.getMonthlyFees())
+                && sameDetails(current.getAnnualFees(), projected.getAnnualFees());
+    }
+
+    private static boolean sameDetails(Map<String, ? extends StudentFeeSummary.FeeDetail> current,
+                                       Map<String, ? extends StudentFeeSummary.FeeDetail> projected) {
+        Map<String, ? extends StudentFeeSummary.FeeDetail> actual = current != null ? current : Map.of();
+        if (!actual.keySet().equals(projected.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, ? extends StudentFeeSummary.FeeDetail> entry : projected.entrySet()) {
+            StudentFeeSummary.FeeDetail a = actual.get(entry.getKey());
+            StudentFeeSummary.FeeDetail b = entry.getValue();
+            if (!same(a.getTotal(), b.getTotal()) || !same(a.getPaid(), b.getPaid())
+                    || !same(a.getPending(), b.getPending()) || !Objects.equals(a.getStatus(), b.getStatus())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean same(Double a, Double b) {
+        return Math.abs(orZero(a) - orZero(b)) < TOLERANCE;
+    }
+
+    private List<StudentFeeSummary.FeeDetail> allDetails() {
+        List<StudentFeeSummary.FeeDetail> details = new ArrayList<>(summary.getMonthlyFees().values());
+        details.addAll(summary.getAnnualFees().values());
+        return details;
+    }
+
+    private static void unpaid(StudentFeeSummary.FeeDetail detail, double amount, LocalDateTime dueDate) {
+        detail.setTotal(amount);
+        detail.setPaid(0.0);
+        detail.setPending(amount);
+        detail.setStatus("PENDING");
+        detail.setDueDate(dueDate);
+    }
+
+    private static Map<String, StudentFeeSummary.MonthlyFeeDetail> copyMonthly(
+            Map<String, StudentFeeSummary.MonthlyFeeDetail> source) {
+        Map<String, StudentFeeSummary.MonthlyFeeDetail> copy = new HashMap<>();
+        if (source != null) {
+            source.forEach((key, detail) -> {
+                StudentFeeSummary.MonthlyFeeDetail clone = new StudentFeeSummary.MonthlyFeeDetail();
+                copy(detail, clone);
+                copy.put(key, clone);
+            });
+        }
+        return copy;
+    }
+
+    private static Map<String, StudentFeeSummary.AnnualFeeDetail> copyAnnual(
+            Map<String, StudentFeeSummary.AnnualFeeDetail> source) {
+        Map<String, StudentFeeSummary.AnnualFeeDetail> copy = new HashMap<>();
+        if (source != null) {
+            source.forEach((key, detail) -> {
+                StudentFeeSummary.AnnualFeeDetail clone = new StudentFeeSummary.AnnualFeeDetail();
+                copy(detail, clone);
+                copy.put(key, clone);
+            });
+        }
+        return copy;
+    }
+
+    private static void copy(StudentFeeSummary.FeeDetail from, StudentFeeSummary.FeeDetail to) {
+        to.setTotal(from.getTotal());
+        to.setPaid(from.getPaid());
+        to.setPending(from.getPending());
+        to.setStatus(from.getStatus());
+        to.setDueDate(from.getDueDate());
+    }
+
+    private static double orZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
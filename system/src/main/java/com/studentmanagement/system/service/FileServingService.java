@@ -0,0 +1,198 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.storage.BlobInfo;
+import com.studentmanagement.system.storage.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Writes stored files to the response with conditional request, single byte
+ * range (206) and zero-copy support. For blobs on the local file system
+ * Tomcat's sendfile is used when the connector offers it; otherwise the file
+ * channel is transferred directly to the response channel. Remote blobs are
+ * streamed from the requested offset.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileServingService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a plain write is cheaper than handing the file to the poller
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private static final String BYTES_UNIT = "bytes=";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final BlobStore blobStore;
+
+    /**
+     * Serve the blob, answering 304, 206 or 416 where the request headers call for it.
+     * Takes the metadata the caller already resolved, so the blob is not stat'ed again.
+     */
+    public void serve(BlobInfo blob,
+                      String contentType,
+                      String etag,
+                      CacheControl cacheControl,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+
+        String key = blob.key();
+        long length = blob.size();
+        long lastModified = blob.lastModified().toEpochMilli();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+
+        // Sets ETag and Last-Modified, and the 304 status when the client copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        ByteRange range = requestedRange(request, etag, length);
+        if (range == ByteRange.UNSATISFIABLE) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        long start = 0;
+        long count = length;
+        if (range != null) {
+            start = range.start();
+            count = range.end() - range.start() + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + range.start() + "-" + range.end() + "/" + length);
+        }
+
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        Optional<Path> localFile = blobStore.localPath(key);
+        if (localFile.isEmpty()) {
+            // Remote backends: the store reads from the offset, we stop after count bytes
+            try (InputStream in = blobStore.open(key, start)) {
+                copy(in, count, response);
+            }
+            return;
+        }
+
+        Path file = localFile.get();
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // The container writes the file with sendfile(2) after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        transfer(file, start, count, response);
+    }
+
+    private void copy(InputStream in, long count, HttpServletResponse response) throws IOException {
+        OutputStream out = response.getOutputStream();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                break;  // Blob shrank underneath us; the client sees a short body
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private void transfer(Path file, long start, long count, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;  // File shrank underneath us; the client sees a short body
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    /**
+     * Resolve the Range header to a single byte range, or null to serve the whole file.
+     * Multiple ranges, other units and malformed values are ignored as RFC 9110 allows,
+     * as is a Range whose If-Range validator no longer matches.
+     */
+    private ByteRange requestedRange(HttpServletRequest request, String etag, long length) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !header.startsWith(BYTES_UNIT) || header.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+
+        String spec = header.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return ByteRange.UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return ByteRange.UNSATISFIABLE;
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record ByteRange(long start, long end) {
+        static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+    }
+}
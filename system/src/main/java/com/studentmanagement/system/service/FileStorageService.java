@@ -1,29 +1,65 @@
 package com.studentmanagement.system.service;
 
+import com.mongodb.client.result.DeleteResult;
+import com.studentmanagement.system.dto.UploadedFile;
+import com.studentmanagement.system.model.StoredFile;
+import com.studentmanagement.system.storage.BlobInfo;
+import com.studentmanagement.system.storage.BlobStore;
 import com.studentmanagement.system.util.AppLogger;
-import org.springframework.beans.factory.annotation.Value;
+import com.studentmanagement.system.util.StripedLock;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.concurrent.locks.Lock;
 
 @Service
+@RequiredArgsConstructor
 public class FileStorageService {
 
-    @Value("${file.upload-dir:uploads/students}")
-    private String uploadDir;
+    private static final String THUMBNAIL_DIR = "thumbnails";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final int CONTENT_SNIFF_BYTES = 12;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
+    private static final Pattern HEX_PREFIX = Pattern.compile("[0-9a-f]{4}");
+
+    // Serializes reference counting with the file create/delete for the same name
+    private final StripedLock fileLocks = new StripedLock(64);
+
+    private final BlobStore blobStore;
+    private final ThumbnailService thumbnailService;
+    private final MongoTemplate mongoTemplate;
 
     /**
-     * Store uploaded file and return the file path
+     * Store uploaded file and return its filename with the content type detected from its bytes
      */
-    public String storeFile(MultipartFile file, String studentId) {
+    public UploadedFile storeFile(MultipartFile file, String studentId) {
         try {
             // Validate file
             if (file.isEmpty()) {
@@ -43,36 +79,39 @@ public class FileStorageService {
             }
 
             // Validate file size (max 5MB)
-            long maxSize = 5 * 1024 * 1024; // 5MB
-            if (file.getSize() > maxSize) {
+            if (file.getSize() > MAX_FILE_SIZE) {
                 throw new ResponseStatusException(
                         HttpStatus.BAD_REQUEST,
                         "File size exceeds maximum limit of 5MB"
                 );
             }
 
-            // Create upload directory if it doesn't exist
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+            try (InputStream in = file.getInputStream()) {
+                return storeStream(in, file.getOriginalFilename(), studentId);
             }
+        } catch (IOException ex) {
+            AppLogger.error("Failed to store file: " + ex.getMessage());
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Failed to store file: " + ex.getMessage()
+            );
+        }
+    }
 
-            String filename = studentId + "_" + UUID.randomUUID().toString() + fileExtension;
-            Path targetLocation = uploadPath.resolve(filename);
-
-            // Copy file to target location
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
-            AppLogger.info("File uploaded successfully: " + filename);
-            return filename;
-
+    /**
+     * Store an image streamed straight from the request body. The type is checked
+     * from the first bytes and the size while streaming, so bad uploads are
+     * rejected before they are read in full; the body is written to disk once.
+     */
+    public UploadedFile storeFile(InputStream body, long contentLength, String studentId) {
+        if (contentLength > MAX_FILE_SIZE) {
+            throw new ResponseStatusException(
+                    HttpStatus.PAYLOAD_TOO_LARGE,
+                    "File size exceeds maximum limit of 5MB"
+            );
+        }
+        try {
+            return storeStream(body, null, studentId);
         } catch (IOException ex) {
             AppLogger.error("Failed to store file: " + ex.getMessage());
             throw new ResponseStatusException(
@@ -82,18 +121,353 @@ public class FileStorageService {
         }
     }
 
+    private UploadedFile storeStream(InputStream in, String originalFilename, String studentId) throws IOException {
+        // Reject anything that is not an image before touching the disk
+        byte[] header = in.readNBytes(CONTENT_SNIFF_BYTES);
+        if (header.length == 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Cannot upload empty file"
+            );
+        }
+        String detectedContentType = detectContentType(header);
+        if (DEFAULT_CONTENT_TYPE.equals(detectedContentType)) {
+            throw new ResponseStatusException(
+                    HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "Only JPEG, PNG, GIF, WebP and BMP images are allowed"
+            );
+        }
+
+        // The name depends on the hash, so the body goes to a staging file first;
+        // on the filesystem store the final put is then a rename rather than a copy
+        Path stagingFile = blobStore.createStagingFile();
+        try {
+            MessageDigest digest = newSha256();
+            long size = copyLimited(header, in, stagingFile, digest);
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            String baseName = sha256 + extensionFor(detectedContentType, originalFilename);
+            String filename = shardedName(baseName);
+            boolean duplicate = acquire(baseName, filename, sha256, detectedContentType, size, stagingFile);
+
+            AppLogger.info("File uploaded for student " + studentId + ": " + filename
+                    + " (" + detectedContentType + (duplicate ? ", deduplicated" : "") + ")");
+
+            if (!duplicate && thumbnailService.claim(filename)) {
+                // Roster pages load small thumbnails; build them off the request thread
+                thumbnailService.generateThumbnails(filename, thumbnailTargets(filename));
+            }
+            return new UploadedFile(filename, detectedContentType, size);
+        } finally {
+            Files.deleteIfExists(stagingFile);
+        }
+    }
+
+    /**
+     * Write the already-read header and the rest of the stream, hashing on the fly
+     * and aborting as soon as the size limit is passed
+     */
+    private long copyLimited(byte[] header, InputStream in, Path target, MessageDigest digest) throws IOException {
+        digest.update(header);
+        long size = header.length;
+
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(header);
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > MAX_FILE_SIZE) {
+                    throw new ResponseStatusException(
+                            HttpStatus.PAYLOAD_TOO_LARGE,
+                            "File size exceeds maximum limit of 5MB"
+                    );
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
     /**
-     * Delete a file
+     * Release one reference to a stored file; the file and its thumbnails are
+     * deleted once no student refers to it. Files stored before content
+     * addressing have no reference record and are deleted directly.
      */
     public void deleteFile(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            return;
+        }
+
+        // Reference records are keyed by the base name, so moving between layouts keeps the count
+        String baseName = baseName(filename);
+        Lock lock = fileLocks.get(baseName);
+        lock.lock();
         try {
-            if (filename == null || filename.isEmpty()) {
-                return;
+            StoredFile stored = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(baseName)),
+                    new Update().inc("refCount", -1).set("updatedAt", LocalDateTime.now()),
+                    FindAndModifyOptions.options().returnNew(true),
+                    StoredFile.class
+            );
+            if (stored != null) {
+                if (stored.getRefCount() > 0) {
+                    AppLogger.info("File reference released: " + filename + " (" + stored.getRefCount() + " remaining)");
+                    return;
+                }
+                DeleteResult removed = mongoTemplate.remove(
+                        Query.query(Criteria.where("_id").is(baseName).and("refCount").lte(0)),
+                        StoredFile.class
+                );
+                if (removed.getDeletedCount() != 1) {
+                    // Another node's upload acquired the file again after our decrement
+                    AppLogger.info("File reference re-acquired before delete, keeping: " + filename);
+                    return;
+                }
             }
 
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            Files.deleteIfExists(filePath);
+            deleteBlobs(filename);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delete an unreferenced file found by the orphan sweeper, unless an upload
+     * touched its reference record after the cutoff. Returns the bytes reclaimed,
+     * or -1 when the file was kept.
+     */
+    public long deleteOrphan(String filename, LocalDateTime cutoff) {
+        String baseName = baseName(filename);
+        Lock lock = fileLocks.get(baseName);
+        lock.lock();
+        try {
+            StoredFile stored = mongoTemplate.findById(baseName, StoredFile.class);
+            if (stored != null && stored.getUpdatedAt() != null && stored.getUpdatedAt().isAfter(cutoff)) {
+                // Re-acquired by an upload whose student update may still be in flight
+                return -1;
+            }
+
+            long reclaimed = 0;
+            for (String key : allKeys(filename)) {
+                Optional<BlobInfo> blob = blobStore.stat(key);
+                if (blob.isPresent()) {
+                    reclaimed += blob.get().size();
+                }
+            }
+
+            if (stored != null) {
+                // Only the record we read; an upload on another node may have touched it since
+                DeleteResult removed = mongoTemplate.remove(Query.query(Criteria.where("_id").is(baseName)
+                        .and("updatedAt").is(stored.getUpdatedAt())), StoredFile.class);
+                if (removed.getDeletedCount() != 1) {
+                    return -1;
+                }
+            }
+            deleteBlobs(filename);
+            return reclaimed;
+        } catch (IOException ex) {
+            AppLogger.error("Failed to delete orphaned file " + filename + ": " + ex.getMessage());
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Key prefix of the thumbnails of the given size
+     */
+    public String thumbnailPrefix(int size) {
+        return THUMBNAIL_DIR + "/" + size + "/";
+    }
+
+    /**
+     * Whether the key belongs to a thumbnail rather than an original
+     */
+    public boolean isThumbnailKey(String key) {
+        return key.startsWith(THUMBNAIL_DIR + "/");
+    }
 
+    /**
+     * Whether the name is an in-progress upload written by storeFile
+     */
+    public boolean isTempFile(String filename) {
+        String baseName = baseName(filename);
+        return baseName.startsWith(BlobStore.STAGING_PREFIX) && baseName.endsWith(BlobStore.STAGING_SUFFIX);
+    }
+
+    /**
+     * Whether the original of the stored name exists, in either layout
+     */
+    public boolean originalExists(String filename) {
+        return statFirst("", filename).isPresent();
+    }
+
+    /**
+     * Stored image in the requested size (longest side in pixels, null for the
+     * original), falling back to the original while the thumbnail does not exist
+     * yet (it is then generated in the background). Empty when neither exists.
+     * Each candidate key costs one stat, a HEAD request on S3, so the result
+     * carries the metadata needed to serve the image.
+     */
+    public Optional<StoredImage> resolveImage(String filename, Integer size) {
+        if (size != null) {
+            Optional<BlobInfo> thumbnail = statFirst(thumbnailPrefix(size), filename);
+            if (thumbnail.isPresent()) {
+                return Optional.of(new StoredImage(thumbnail.get(), true));
+            }
+        }
+
+        Optional<BlobInfo> original = statFirst("", filename);
+        if (size != null && original.isPresent() && thumbnailService.claim(original.get().key())) {
+            // Uploaded before thumbnails existed; not queued again while running or after failing
+            thumbnailService.generateThumbnails(original.get().key(), thumbnailTargets(filename));
+        }
+        return original.map(blob -> new StoredImage(blob, false));
+    }
+
+    /**
+     * An image blob resolved for serving; thumbnail is false for the original
+     */
+    public record StoredImage(BlobInfo blob, boolean thumbnail) {
+    }
+
+    /**
+     * Stored name in the fan-out layout, ab/cd/<name>. Content-addressed names use
+     * their own leading hex digits; other names are spread by a hash of the name.
+     */
+    public String shardedName(String filename) {
+        String baseName = baseName(filename);
+        String hash = HEX_PREFIX.matcher(baseName).lookingAt()
+                ? baseName
+                : HexFormat.of().formatHex(newSha256().digest(baseName.getBytes(StandardCharsets.UTF_8)));
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + baseName;
+    }
+
+    /**
+     * Whether the stored name already uses the sharded layout
+     */
+    public boolean isSharded(String filename) {
+        return filename.indexOf('/') >= 0;
+    }
+
+    /**
+     * File name without the shard directories
+     */
+    public String baseName(String filename) {
+        return filename.substring(filename.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Move a flat file and its thumbnails into the sharded layout. Returns false
+     * when neither the flat nor the sharded original exists.
+     */
+    public boolean relocateToShardedLayout(String filename) throws IOException {
+        String baseName = baseName(filename);
+        String sharded = shardedName(baseName);
+
+        Lock lock = fileLocks.get(baseName);
+        lock.lock();
+        try {
+            moveIfPresent("", baseName, sharded);
+            for (Integer size : ThumbnailService.THUMBNAIL_SIZES) {
+                moveIfPresent(thumbnailPrefix(size), baseName, sharded);
+            }
+            return blobStore.exists(sharded);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void moveIfPresent(String prefix, String flatName, String shardedName) throws IOException {
+        String source = prefix + flatName;
+        if (!blobStore.exists(source)) {
+            return;
+        }
+        String target = prefix + shardedName;
+        if (blobStore.exists(target)) {
+            // Already moved once; names are immutable, so the flat copy is identical
+            blobStore.delete(source);
+        } else {
+            blobStore.move(source, target);
+        }
+    }
+
+    /**
+     * Metadata of the first candidate key that exists
+     */
+    private Optional<BlobInfo> statFirst(String prefix, String filename) {
+        try {
+            for (String candidate : candidateKeys(prefix, filename)) {
+                Optional<BlobInfo> blob = blobStore.stat(candidate);
+                if (blob.isPresent()) {
+                    return blob;
+                }
+            }
+            return Optional.empty();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private List<String> candidateKeys(String prefix, String filename) {
+        if (isSharded(filename)) {
+            return List.of(prefix + filename);
+        }
+        return List.of(prefix + shardedName(filename), prefix + filename);
+    }
+
+    /**
+     * Every key the original and its thumbnails may live under, in either layout
+     */
+    private List<String> allKeys(String filename) {
+        List<String> keys = new ArrayList<>(candidateKeys("", filename));
+        for (Integer size : ThumbnailService.THUMBNAIL_SIZES) {
+            keys.addAll(candidateKeys(thumbnailPrefix(size), filename));
+        }
+        return keys;
+    }
+
+    /**
+     * Record one more reference to the content and make sure the blob is in place.
+     * Returns true when the content was already stored.
+     */
+    private boolean acquire(String baseName, String key, String sha256, String contentType, long size,
+                            Path stagingFile) throws IOException {
+        Lock lock = fileLocks.get(baseName);
+        lock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            StoredFile previous = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(baseName)),
+                    new Update()
+                            .inc("refCount", 1)
+                            .set("updatedAt", now)
+                            .setOnInsert("sha256", sha256)
+                            .setOnInsert("contentType", contentType)
+                            .setOnInsert("size", size)
+                            .setOnInsert("createdAt", now),
+                    FindAndModifyOptions.options().upsert(true).returnNew(false),
+                    StoredFile.class
+            );
+
+            if (previous != null && blobStore.exists(key)) {
+                return true;
+            }
+            // New content, or the record survived a lost blob: (re)write it
+            blobStore.put(key, stagingFile, contentType);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteBlobs(String filename) {
+        try {
+            for (String key : allKeys(filename)) {
+                blobStore.delete(key);
+            }
             AppLogger.info("File deleted successfully: " + filename);
         } catch (IOException ex) {
             AppLogger.error("Failed to delete file: " + ex.getMessage());
@@ -102,9 +476,95 @@ public class FileStorageService {
     }
 
     /**
-     * Get file path
+     * Extension from the detected content type, so identical bytes always map to one name
      */
-    public Path getFilePath(String filename) {
-        return Paths.get(uploadDir).resolve(filename);
+    private String extensionFor(String contentType, String originalFilename) {
+        switch (contentType) {
+            case "image/jpeg":
+                return ".jpg";
+            case "image/png":
+                return ".png";
+            case "image/gif":
+                return ".gif";
+            case "image/webp":
+                return ".webp";
+            case "image/bmp":
+                return ".bmp";
+            default:
+                if (originalFilename != null && originalFilename.matches(".*\\.[A-Za-z0-9]{1,8}")) {
+                    return originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase();
+                }
+                return "";
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Content type for files uploaded before it was stored with the student, guessed from the suffix
+     */
+    public String guessContentType(String filename) {
+        String lower = filename.toLowerCase();
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "image/jpeg";
+        } else if (lower.endsWith(".png")) {
+            return "image/png";
+        } else if (lower.endsWith(".gif")) {
+            return "image/gif";
+        } else if (lower.endsWith(".webp")) {
+            return "image/webp";
+        }
+        return DEFAULT_CONTENT_TYPE;
+    }
+
+    /**
+     * Detect the content type from the leading bytes of the file; the declared
+     * content type is client supplied and not trusted for serving
+     */
+    private String detectContentType(byte[] header) {
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, 'R', 'I', 'F', 'F') && header.length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        if (startsWith(header, 'B', 'M')) {
+            return "image/bmp";
+        }
+        return DEFAULT_CONTENT_TYPE;
+    }
+
+    private static boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<Integer, String> thumbnailTargets(String filename) {
+        Map<Integer, String> targets = new LinkedHashMap<>();
+        for (Integer size : ThumbnailService.THUMBNAIL_SIZES) {
+            // New thumbnails always go to the sharded layout
+            targets.put(size, thumbnailPrefix(size) + shardedName(filename));
+        }
+        return targets;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,237 @@
+package com.studentmanagement.system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
+import com.studentmanagement.system.dto.CreatePaymentRequest;
+import com.studentmanagement.system.dto.PaymentResponse;
+import com.studentmanagement.system.model.IdempotencyRecord;
+import com.studentmanagement.system.repository.IdempotencyRecordRepository;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Deduplicates payment requests carrying an Idempotency-Key header.
+ * Completed responses live in Mongo (TTL-indexed) behind an in-memory LRU.
+ * A request marks its reservation APPLYING before the payment touches any data;
+ * only reservations that never got that far can be taken over when stale, or are
+ * released when the payment fails. One that fails later is kept as FAILED, as the
+ * payment may have been partly taken, and its key is refused from then on.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String APPLYING = "APPLYING";
+    private static final String FAILED = "FAILED";
+    private static final String COMPLETED = "COMPLETED";
+
+    // Matches the TTL index on IdempotencyRecord.createdAt
+    private static final Duration KEY_TTL = Duration.ofHours(24);
+
+    // A reservation older than this is assumed to belong to a crashed request
+    private static final Duration IN_PROGRESS_TIMEOUT = Duration.ofMinutes(5);
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${payment.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    private LruCache<String, IdempotencyRecord> completedCache;
+
+    @PostConstruct
+    void initCache() {
+        completedCache = new LruCache<>(cacheSize, KEY_TTL);
+    }
+
+    /**
+     * Run the payment once per key; replays return the stored response.
+     * The payment is given a guard to run right before it changes any data, e.g.
+     * once it holds the student's lock and has validated the request; the guard
+     * throws CONFLICT when a retry has taken the reservation over in the meantime.
+     */
+    public PaymentResponse execute(String key, CreatePaymentRequest request,
+                                   Function<Runnable, PaymentResponse> payment) {
+        String requestHash = hashRequest(request);
+
+        IdempotencyRecord cached = completedCache.get(key);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+
+        IdempotencyRecord reservation = reserve(key, requestHash);
+        if (COMPLETED.equals(reservation.getStatus())) {
+            completedCache.put(key, reservation);
+            return replay(reservation, requestHash);
+        }
+
+        PaymentResponse response;
+        try {
+            response = payment.apply(() -> markApplying(reservation));
+        } catch (RuntimeException e) {
+            release(reservation);
+            throw e;
+        }
+
+        reservation.setStatus(COMPLETED);
+        reservation.setResponse(response);
+        idempotencyRecordRepository.save(reservation);
+        completedCache.put(key, reservation);
+
+        return response;
+    }
+
+    /**
+     * Insert an IN_PROGRESS record for the key, or return the existing completed one
+     */
+    private IdempotencyRecord reserve(String key, String requestHash) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(key);
+        record.setRequestHash(requestHash);
+        record.setStatus(IN_PROGRESS);
+        record.setOwner(UUID.randomUUID().toString());
+        record.setCreatedAt(LocalDateTime.now());
+
+        try {
+            return idempotencyRecordRepository.insert(record);
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(key).orElse(null);
+            if (existing == null) {
+                // Expired or released in the meantime
+                return reserve(key, requestHash);
+            }
+            if (COMPLETED.equals(existing.getStatus())) {
+                return existing;
+            }
+            if (FAILED.equals(existing.getStatus())) {
+                throw new ResponseStatusException(
+                        HttpStatus.CONFLICT,
+                        "A payment with this Idempotency-Key failed after it started being applied;"
+                                + " check the student's payments before retrying with a new key"
+                );
+            }
+            if (APPLYING.equals(existing.getStatus())) {
+                // The payment may have been saved; only the request that applied it can complete the key
+                throw new ResponseStatusException(
+                        HttpStatus.CONFLICT,
+                        "A payment with this Idempotency-Key is already being processed or may have been"
+                                + " taken; check the student's payments before retrying with a new key"
+                );
+            }
+            if (existing.getCreatedAt().isBefore(LocalDateTime.now().minus(IN_PROGRESS_TIMEOUT))) {
+                return takeOver(existing, record);
+            }
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "A payment with this Idempotency-Key is already being processed"
+            );
+        }
+    }
+
+    /**
+     * Replace a stale IN_PROGRESS reservation with ours, only if it is still the one
+     * we read; the request holding it then fails its markApplying instead of paying
+     */
+    private IdempotencyRecord takeOver(IdempotencyRecord stale, IdempotencyRecord record) {
+        Update update = new Update()
+                .set("requestHash", record.getRequestHash())
+                .set("owner", record.getOwner())
+                .set("createdAt", record.getCreatedAt());
+        IdempotencyRecord taken = mongoTemplate.findAndModify(
+                ownedBy(stale).addCriteria(Criteria.where("status").is(IN_PROGRESS)
+                        .and("createdAt").is(stale.getCreatedAt())),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                IdempotencyRecord.class);
+        if (taken == null) {
+            // Completed, released or taken over by another retry since we read it
+            return reserve(record.getKey(), record.getRequestHash());
+        }
+        AppLogger.warn("Took over stale idempotency reservation: " + record.getKey());
+        return taken;
+    }
+
+    /**
+     * Move our reservation to APPLYING; from here on it is never taken over
+     */
+    private void markApplying(IdempotencyRecord reservation) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                ownedBy(reservation).addCriteria(Criteria.where("status").is(IN_PROGRESS)),
+                new Update().set("status", APPLYING),
+                IdempotencyRecord.class);
+        if (result.getModifiedCount() == 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Idempotency-Key reservation was taken over by a retry; this request was not applied"
+            );
+        }
+        reservation.setStatus(APPLYING);
+    }
+
+    /**
+     * After a failed payment: free the key for a retry if the payment never started
+     * changing data, otherwise mark it FAILED so a retry cannot pay a second time.
+     * A reservation a retry has taken over is left to that retry.
+     */
+    private void release(IdempotencyRecord reservation) {
+        try {
+            if (APPLYING.equals(reservation.getStatus())) {
+                mongoTemplate.updateFirst(ownedBy(reservation), new Update().set("status", FAILED),
+                        IdempotencyRecord.class);
+            } else {
+                mongoTemplate.remove(ownedBy(reservation), IdempotencyRecord.class);
+            }
+        } catch (RuntimeException e) {
+            // An APPLYING record left behind is refused just the same
+            AppLogger.error("Failed to release Idempotency-Key " + reservation.getKey() + ": " + e.getMessage());
+        }
+    }
+
+    private Query ownedBy(IdempotencyRecord reservation) {
+        return new Query(Criteria.where("_id").is(reservation.getKey()).and("owner").is(reservation.getOwner()));
+    }
+
+    private PaymentResponse replay(IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new ResponseStatusException(
+                    HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different payment"
+            );
+        }
+        AppLogger.info("Replaying payment for Idempotency-Key: " + record.getKey());
+        return record.getResponse();
+    }
+
+    private String hashRequest(CreatePaymentRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(objectMapper.writeValueAsBytes(request));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new RuntimeException("Error hashing payment request", e);
+        }
+    }
+}
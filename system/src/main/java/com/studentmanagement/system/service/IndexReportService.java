@@ -0,0 +1,119 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.dto.QueryPlanReport;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Explains a representative query for every derived repository finder
+ * and reports which ones are not served by an index.
+ */
+@Service
+@RequiredArgsConstructor
+public class IndexReportService {
+
+    private final MongoTemplate mongoTemplate;
+
+    private record QueryProbe(String query, String collection, Document filter, Document sort) {
+    }
+
+    private static final String PROBE = "__probe__";
+
+    private static final List<QueryProbe> PROBES = List.of(
+            new QueryProbe("StudentRepository.findByStudentId", "students",
+                    new Document("studentId", PROBE), null),
+            new QueryProbe("StudentRepository.findByClassName", "students",
+                    new Document("className", PROBE), null),
+            new QueryProbe("StudentRepository.findByTeacherId", "students",
+                    new Document("teacherId", PROBE), null),
+            new QueryProbe("TeacherRepository.findByTeacherId", "teachers",
+                    new Document("teacherId", PROBE), null),
+            new QueryProbe("TeacherRepository.findBySubject", "teachers",
+                    new Document("subject", PROBE), null),
+            new QueryProbe("UserRepository.findByUsername", "users",
+                    new Document("username", PROBE), null),
+            new QueryProbe("UserRepository.countByRole", "users",
+                    new Document("role", PROBE), null),
+            new QueryProbe("PaymentRepository.findByPaymentId", "payments",
+                    new Document("paymentId", PROBE), null),
+            new QueryProbe("PaymentRepository.findByStudentIdOrderByPaymentDateDesc", "payments",
+                    new Document("studentId", PROBE), new Document("paymentDate", -1)),
+            new QueryProbe("PaymentRepository.findByPaymentDateBetween", "payments",
+                    new Document("paymentDate", new Document("$gt", new Date(0)).append("$lt", new Date())), null),
+            new QueryProbe("PaymentRepository.findByStatus", "payments",
+                    new Document("status", PROBE), null),
+            new QueryProbe("FeeStructureRepository.findByClassNameAndIsActive", "fee_structure",
+                    new Document("className", PROBE).append("isActive", true), null),
+            new QueryProbe("StudentFeeSummaryRepository.findByStudentId", "student_fee_summary",
+                    new Document("studentId", PROBE), null),
+            new QueryProbe("StudentFeeSummaryRepository.findByClassName", "student_fee_summary",
+                    new Document("className", PROBE), null),
+            new QueryProbe("StudentFeeSummaryRepository.findByTotalPendingAmountGreaterThan", "student_fee_summary",
+                    new Document("totalPendingAmount", new Document("$gt", 0.0)), null)
+    );
+
+    /**
+     * Explain every probe query and report the stages of its winning plan
+     */
+    public List<QueryPlanReport> getQueryPlanReport() {
+        List<QueryPlanReport> reports = new ArrayList<>();
+
+        for (QueryProbe probe : PROBES) {
+            QueryPlanReport.QueryPlanReportBuilder report = QueryPlanReport.builder()
+                    .query(probe.query())
+                    .collection(probe.collection());
+            try {
+                var find = mongoTemplate.getCollection(probe.collection()).find(probe.filter());
+                if (probe.sort() != null) {
+                    find = find.sort(probe.sort());
+                }
+                Document explain = find.explain();
+                Object winningPlan = ((Document) explain.get("queryPlanner")).get("winningPlan");
+
+                List<String> stages = new ArrayList<>();
+                List<String> indexNames = new ArrayList<>();
+                collectStages(winningPlan, stages, indexNames);
+
+                report.stages(stages)
+                        .indexNames(indexNames)
+                        .collectionScan(stages.contains("COLLSCAN"));
+            } catch (Exception e) {
+                AppLogger.error("Failed to explain " + probe.query() + ": " + e.getMessage());
+                report.error(e.getMessage());
+            }
+            reports.add(report.build());
+        }
+
+        return reports;
+    }
+
+    /**
+     * Walk a plan tree (inputStage / inputStages / queryPlan) collecting stage and index names
+     */
+    private void collectStages(Object node, List<String> stages, List<String> indexNames) {
+        if (node instanceof Document document) {
+            Object stage = document.get("stage");
+            if (stage instanceof String stageName) {
+                stages.add(stageName);
+            }
+            Object indexName = document.get("indexName");
+            if (indexName instanceof String name) {
+                indexNames.add(name);
+            }
+            for (Object value : document.values()) {
+                collectStages(value, stages, indexNames);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                collectStages(value, stages, indexNames);
+            }
+        }
+    }
+}
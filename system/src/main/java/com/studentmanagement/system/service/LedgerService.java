@@ -0,0 +1,149 @@
+package com.studentmanagement.system.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.studentmanagement.system.model.LedgerEntry;
+import com.studentmanagement.system.model.Payment;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.SnowflakeIdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Appends entries to the payment ledger. Writers record an entry before they
+ * change the fee summary, so a rebuild that reads a summary version and then
+ * the ledger never misses a change that summary version already contains.
+ * Entries have deterministic IDs: recording the same fact twice is a no-op.
+ */
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final SnowflakeIdGenerator snowflakeIdGenerator;
+
+    // Reversals whose write failed, by ledger ID, until a retry records them
+    private final Map<String, LedgerEntry> pendingReversals = new ConcurrentHashMap<>();
+
+    public LedgerEntry newCharge(String studentId, Payment.PaymentType feeType, String period,
+                                 double amount, LocalDateTime dueDate) {
+        return LedgerEntry.charge(snowflakeIdGenerator.nextId(), studentId, feeType, period, amount, dueDate);
+    }
+
+    public LedgerEntry newPayment(Payment payment, String period, StudentFeeSummary.FeeDetail fee) {
+        return LedgerEntry.payment(snowflakeIdGenerator.nextId(), payment, period, fee);
+    }
+
+    public LedgerEntry newAdjustment(String studentId, Payment.PaymentType feeType, String period,
+                                     double amount, String reason, String createdBy) {
+        return LedgerEntry.adjustment(snowflakeIdGenerator.nextId(), studentId, feeType, period,
+                amount, reason, createdBy);
+    }
+
+    /**
+     * Record one entry; one with the same ID already recorded is left as is
+     */
+    public void record(LedgerEntry entry) {
+        try {
+            mongoTemplate.insert(entry);
+        } catch (DuplicateKeyException e) {
+            // Already recorded
+        }
+    }
+
+    /**
+     * Record entries with one unordered bulk insert, skipping those already recorded
+     */
+    public void recordAll(Collection<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LedgerEntry.class);
+        entries.forEach(ops::insert);
+        try {
+            ops.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancel payment entries whose fee summary update was rejected, so the ledger
+     * does not count payments that were never taken. Reversals are written right
+     * after the payment, well within ledger.snapshot.settle-minutes, so a rebuild
+     * replays both together. Reversals that fail to write are kept and retried;
+     * until then rebuilds on this node leave the student alone.
+     */
+    public void reversePayments(Collection<LedgerEntry> payments) {
+        List<LedgerEntry> reversals = payments.stream()
+                .map(payment -> LedgerEntry.reversal(snowflakeIdGenerator.nextId(), payment))
+                .collect(Collectors.toList());
+        try {
+            recordAll(reversals);
+        } catch (RuntimeException e) {
+            AppLogger.error("Failed to reverse " + reversals.size() + " payments in the ledger, will retry: "
+                    + e.getMessage());
+            reversals.forEach(reversal -> pendingReversals.put(reversal.getId(), reversal));
+        }
+    }
+
+    /**
+     * Retry reversals that failed to write. Runs well within the settle window, so a
+     * payment and its reversal normally still reach snapshots together.
+     */
+    @Scheduled(fixedDelayString = "${ledger.reversal-retry-ms:30000}")
+    public void retryReversals() {
+        if (pendingReversals.isEmpty()) {
+            return;
+        }
+        List<LedgerEntry> reversals = new ArrayList<>(pendingReversals.values());
+        try {
+            recordAll(reversals);
+        } catch (RuntimeException e) {
+            AppLogger.error("Retry of " + reversals.size() + " ledger reversals failed: " + e.getMessage());
+            return;
+        }
+        reversals.forEach(reversal -> pendingReversals.remove(reversal.getId()));
+        AppLogger.info("Recorded " + reversals.size() + " ledger reversals on retry");
+    }
+
+    /**
+     * Whether a reversal of one of the student's payments is still waiting to be
+     * recorded; their ledger counts a payment the summary does not
+     */
+    public boolean hasPendingReversals(String studentId) {
+        return pendingReversals.values().stream()
+                .anyMatch(reversal -> studentId.equals(reversal.getStudentId()));
+    }
+
+    /**
+     * All entries of a student in replay order
+     */
+    public List<LedgerEntry> getStudentLedger(String studentId) {
+        Query query = Query.query(Criteria.where("studentId").is(studentId))
+                .with(Sort.by(Sort.Direction.ASC, "entryId"));
+        return mongoTemplate.find(query, LedgerEntry.class);
+    }
+}
@@ -0,0 +1,108 @@
+package com.studentmanagement.system.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.studentmanagement.system.model.NodeIdLease;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.SnowflakeIdGenerator;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Leases snowflake node IDs from MongoDB for nodes without a configured
+ * ids.node-id, so no two running nodes share one. A lease is renewed every
+ * minute and released on shutdown; one left by a crashed node is free again
+ * once it expires.
+ */
+@Service
+@RequiredArgsConstructor
+public class NodeIdLeaseService {
+
+    // Long enough that a node only loses its lease after many failed renewals
+    private static final Duration LEASE_DURATION = Duration.ofMinutes(10);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final String owner = UUID.randomUUID().toString();
+    private volatile Integer leasedNodeId;
+
+    /**
+     * Take a free node ID, starting the search at the one derived from host name
+     * and PID so nodes rarely contend for the same ID
+     */
+    public synchronized int acquire() {
+        int start = SnowflakeIdGenerator.defaultNodeId();
+        for (int i = 0; i <= SnowflakeIdGenerator.MAX_NODE_ID; i++) {
+            int nodeId = (start + i) & SnowflakeIdGenerator.MAX_NODE_ID;
+            if (claim(nodeId)) {
+                leasedNodeId = nodeId;
+                return nodeId;
+            }
+        }
+        throw new IllegalStateException("All " + (SnowflakeIdGenerator.MAX_NODE_ID + 1)
+                + " snowflake node IDs are leased; set ids.node-id explicitly");
+    }
+
+    /**
+     * Insert the lease, or take it over if it has expired. A live lease makes the
+     * upsert insert a duplicate _id, which fails.
+     */
+    private boolean claim(int nodeId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query expired = Query.query(Criteria.where("_id").is(nodeId).and("expiresAt").lt(now));
+        Update update = new Update()
+                .set("owner", owner)
+                .set("expiresAt", now.plus(LEASE_DURATION));
+        try {
+            mongoTemplate.upsert(expired, update, NodeIdLease.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void renew() {
+        Integer nodeId = leasedNodeId;
+        if (nodeId == null) {
+            return;
+        }
+        try {
+            UpdateResult result = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(nodeId).and("owner").is(owner)),
+                    new Update().set("expiresAt", LocalDateTime.now().plus(LEASE_DURATION)),
+                    NodeIdLease.class);
+            if (result.getMatchedCount() == 0) {
+                AppLogger.error("Lease on snowflake node ID " + nodeId + " was lost to another node;"
+                        + " IDs from this node may now collide. Restart this node.");
+            }
+        } catch (RuntimeException e) {
+            AppLogger.warn("Failed to renew lease on snowflake node ID " + nodeId + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        Integer nodeId = leasedNodeId;
+        if (nodeId == null) {
+            return;
+        }
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(nodeId).and("owner").is(owner)),
+                    NodeIdLease.class);
+        } catch (RuntimeException e) {
+            // The lease expires on its own
+            AppLogger.warn("Failed to release lease on snowflake node ID " + nodeId + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.dto.OrphanSweepReport;
+import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.storage.BlobInfo;
+import com.studentmanagement.system.storage.BlobStore;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Removes stored files that no student refers to any more: images left behind
+ * by failed updates or deleted students, temp files of aborted uploads and
+ * thumbnails whose original is gone. Files younger than the grace period are
+ * kept so uploads whose student update is still in flight are never touched.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrphanFileSweeper {
+
+    private final BlobStore blobStore;
+    private final FileStorageService fileStorageService;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${file.orphan-sweep.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.orphan-sweep.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${file.orphan-sweep.batch-size:500}")
+    private int batchSize;
+
+    @Value("${file.orphan-sweep.max-deletes-per-second:50}")
+    private int maxDeletesPerSecond;
+
+    @Value("${file.orphan-sweep.max-deletes-per-run:10000}")
+    private int maxDeletesPerRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile OrphanSweepReport lastReport;
+
+    @Scheduled(initialDelayString = "${file.orphan-sweep.initial-delay-ms:600000}",
+            fixedDelayString = "${file.orphan-sweep.interval-ms:21600000}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    /**
+     * Run one sweep; returns null when another sweep is already running
+     */
+    public OrphanSweepReport sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        OrphanSweepReport report = new OrphanSweepReport();
+        report.setStartedAt(LocalDateTime.now());
+        try {
+            Instant cutoff = Instant.now().minus(Duration.ofHours(graceHours));
+            DeleteRateLimiter limiter = new DeleteRateLimiter(maxDeletesPerSecond);
+
+            if (sweepUploads(cutoff, limiter, report)) {
+                for (Integer size : ThumbnailService.THUMBNAIL_SIZES) {
+                    if (!sweepThumbnails(fileStorageService.thumbnailPrefix(size), cutoff, limiter, report)) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            AppLogger.error("Orphan file sweep failed: " + e.getMessage());
+            report.setError(e.getMessage());
+        } finally {
+            report.setFinishedAt(LocalDateTime.now());
+            lastReport = report;
+            running.set(false);
+        }
+
+        AppLogger.info("Orphan file sweep: scanned " + report.getScannedFiles()
+                + ", deleted " + report.getDeletedFiles()
+                + ", reclaimed " + report.getReclaimedBytes() + " bytes"
+                + (report.isTruncated() ? " (delete limit reached)" : ""));
+        return report;
+    }
+
+    /**
+     * Report of the most recent sweep, null before the first one
+     */
+    public OrphanSweepReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Stream the upload store and check names against students in batches.
+     * Returns false once the per-run delete limit is reached.
+     */
+    private boolean sweepUploads(Instant cutoff, DeleteRateLimiter limiter,
+                                 OrphanSweepReport report) throws IOException {
+        List<BlobInfo> batch = new ArrayList<>(batchSize);
+        boolean completed = blobStore.list("", blob -> {
+            if (fileStorageService.isThumbnailKey(blob.key())) {
+                return true;  // Swept separately, against their originals
+            }
+            report.setScannedFiles(report.getScannedFiles() + 1);
+            batch.add(blob);
+            if (batch.size() < batchSize) {
+                return true;
+            }
+            boolean more = sweepBatch(batch, cutoff, limiter, report);
+            batch.clear();
+            return more;
+        });
+        return completed && (batch.isEmpty() || sweepBatch(batch, cutoff, limiter, report));
+    }
+
+    private boolean sweepBatch(List<BlobInfo> batch, Instant cutoff, DeleteRateLimiter limiter,
+                               OrphanSweepReport report) throws IOException {
+        // A file counts as referenced under either layout's name: students may hold a
+        // flat name the migration has not rewritten yet, or the sharded name of a copy
+        Set<String> names = new HashSet<>();
+        for (BlobInfo blob : batch) {
+            names.add(fileStorageService.baseName(blob.key()));
+            names.add(fileStorageService.shardedName(blob.key()));
+        }
+        Set<String> referenced = findReferencedNames(names);
+        LocalDateTime recordCutoff = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+
+        for (BlobInfo blob : batch) {
+            String name = blob.key();
+            if (referenced.contains(fileStorageService.baseName(name))
+                    || referenced.contains(fileStorageService.shardedName(name))) {
+                report.setReferencedFiles(report.getReferencedFiles() + 1);
+                continue;
+            }
+            if (!blob.lastModified().isBefore(cutoff)) {
+                report.setSkippedRecentFiles(report.getSkippedRecentFiles() + 1);
+                continue;
+            }
+            if (report.getDeletedFiles() >= maxDeletesPerRun) {
+                report.setTruncated(true);
+                return false;
+            }
+
+            limiter.acquire();
+            long reclaimed = fileStorageService.isTempFile(name)
+                    ? deleteQuietly(blob)
+                    : fileStorageService.deleteOrphan(name, recordCutoff);
+            if (reclaimed < 0) {
+                report.setSkippedRecentFiles(report.getSkippedRecentFiles() + 1);
+            } else {
+                report.setDeletedFiles(report.getDeletedFiles() + 1);
+                report.setReclaimedBytes(report.getReclaimedBytes() + reclaimed);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Thumbnails are removed together with their original; anything left over is dangling
+     */
+    private boolean sweepThumbnails(String prefix, Instant cutoff, DeleteRateLimiter limiter,
+                                    OrphanSweepReport report) throws IOException {
+        return blobStore.list(prefix, blob -> {
+            report.setScannedFiles(report.getScannedFiles() + 1);
+            // The base name resolves the original in either layout
+            String baseName = fileStorageService.baseName(blob.key());
+            if (!blob.lastModified().isBefore(cutoff) || fileStorageService.originalExists(baseName)) {
+                return true;
+            }
+            if (report.getDeletedFiles() >= maxDeletesPerRun) {
+                report.setTruncated(true);
+                return false;
+            }
+
+            limiter.acquire();
+            long reclaimed = deleteQuietly(blob);
+            if (reclaimed >= 0) {
+                report.setDeletedFiles(report.getDeletedFiles() + 1);
+                report.setReclaimedBytes(report.getReclaimedBytes() + reclaimed);
+            }
+            return true;
+        });
+    }
+
+    private Set<String> findReferencedNames(Set<String> names) {
+        Query query = Query.query(Criteria.where("profileImageUrl").in(names));
+        query.fields().include("profileImageUrl");
+
+        Set<String> referenced = new HashSet<>();
+        for (Students student : mongoTemplate.find(query, Students.class)) {
+            referenced.add(student.getProfileImageUrl());
+        }
+        return referenced;
+    }
+
+    private long deleteQuietly(BlobInfo blob) {
+        try {
+            blobStore.delete(blob.key());
+            return blob.size();
+        } catch (IOException e) {
+            AppLogger.warn("Failed to delete orphaned file " + blob.key() + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Spaces deletes evenly so a large backlog does not saturate the disk
+     */
+    private static final class DeleteRateLimiter {
+
+        private final long intervalNanos;
+        private long nextAllowed = System.nanoTime();
+
+        DeleteRateLimiter(int permitsPerSecond) {
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(permitsPerSecond, 1);
+        }
+
+        void acquire() {
+            long now = System.nanoTime();
+            if (nextAllowed > now) {
+                LockSupport.parkNanos(nextAllowed - now);
+            }
+            nextAllowed = Math.max(nextAllowed, now) + intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.dto.OverdueRunReport;
+import com.studentmanagement.system.model.FeeStructure;
+import com.studentmanagement.system.model.LedgerEntry;
+import com.studentmanagement.system.model.Payment;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps fee entry statuses current so readers never recompute them:
+ * materializes the current month (and year) as PENDING entries for every
+ * student of a class with an active fee structure, then flips PENDING and
+ * PARTIAL entries past their due date to OVERDUE. Only summaries whose
+ * indexed nextDueDate has passed are touched, in _id batches, each batch
+ * one pipeline updateMany evaluated atomically per summary. Materialized
+ * entries are charged in the payment ledger; status flips are not ledger
+ * facts, as a rebuild derives statuses from due dates.
+ */
+@Service
+@RequiredArgsConstructor
+public class OverdueFeeService {
+
+    private static final List<String> UNPAID_STATUSES = List.of("PENDING", "PARTIAL");
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final PaymentService paymentService;
+    private final LedgerService ledgerService;
+
+    @Value("${fee-summary.overdue.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fee-summary.overdue.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${fee-summary.overdue.materialize-entries:true}")
+    private boolean materializeEntries;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile OverdueRunReport lastReport;
+
+    @Scheduled(initialDelayString = "${fee-summary.overdue.initial-delay-ms:120000}",
+            fixedDelayString = "${fee-summary.overdue.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (enabled) {
+            run(false);
+        }
+    }
+
+    /**
+     * Run the engine once; fullScan re-evaluates every summary, e.g. after an import
+     * of summaries without nextDueDate. Returns null when a run is already in progress.
+     */
+    public OverdueRunReport run(boolean fullScan) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        OverdueRunReport report = new OverdueRunReport();
+        report.setStartedAt(LocalDateTime.now());
+        report.setFullScan(fullScan);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (materializeEntries) {
+                materializeCurrentPeriod(now.toLocalDate(), report);
+            }
+            markOverdue(now, fullScan, report);
+        } catch (RuntimeException e) {
+            AppLogger.error("Overdue fee run failed: " + e.getMessage());
+            report.setError(e.getMessage());
+        } finally {
+            report.setFinishedAt(LocalDateTime.now());
+            lastReport = report;
+            running.set(false);
+        }
+
+        AppLogger.info("Overdue fee run: " + report.getMaterializedMonthEntries() + " month and "
+                + report.getMaterializedYearEntries() + " year entries added, "
+                + report.getUpdatedSummaries() + " of " + report.getScannedSummaries() + " summaries updated");
+        return report;
+    }
+
+    /**
+     * Report of the most recent run, null before the first one
+     */
+    public OverdueRunReport getLastReport() {
+        return lastReport;
+    }
+
+    private void materializeCurrentPeriod(LocalDate today, OverdueRunReport report) {
+        List<FeeStructure> feeStructures = mongoTemplate.find(
+                Query.query(Criteria.where("isActive").is(true)), FeeStructure.class);
+
+        for (FeeStructure feeStructure : feeStructures) {
+            double monthlyFee = orZero(feeStructure.getMonthlyFee());
+            double annualFee = orZero(feeStructure.getAnnualFee());
+            if (monthlyFee <= 0 && annualFee <= 0) {
+                continue;
+            }
+
+            report.setCreatedSummaries(report.getCreatedSummaries() + createMissingSummaries(feeStructure));
+
+            if (monthlyFee > 0) {
+                StudentFeeSummary.MonthlyFeeDetail detail = StudentFeeSummary.MonthlyFeeDetail.unpaid(
+                        monthlyFee, today.getYear(), today.getMonthValue());
+                String monthKey = StudentFeeSummary.monthKey(today.getMonthValue(), today.getYear());
+                report.setMaterializedMonthEntries(report.getMaterializedMonthEntries()
+                        + addEntryToClass(feeStructure.getClassName(), Payment.PaymentType.MONTHLY, monthKey,
+                        detail, monthlyFee, detail.getDueDate()));
+            }
+            if (annualFee > 0) {
+                StudentFeeSummary.AnnualFeeDetail detail = StudentFeeSummary.AnnualFeeDetail.unpaid(
+                        annualFee, today.getYear());
+                report.setMaterializedYearEntries(report.getMaterializedYearEntries()
+                        + addEntryToClass(feeStructure.getClassName(), Payment.PaymentType.ANNUAL,
+                        String.valueOf(today.getYear()), detail, annualFee, detail.getDueDate()));
+            }
+        }
+    }
+
+    /**
+     * Create empty summaries for students of the class that have none, in batches
+     */
+    private long createMissingSummaries(FeeStructure feeStructure) {
+        Query query = Query.query(Criteria.where("className").is(feeStructure.getClassName()));
+        query.fields().include("studentId", "fullName", "className");
+        query.cursorBatchSize(STREAM_BATCH_SIZE);
+
+        long created = 0;
+        List<Students> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+        try (Stream<Students> students = mongoTemplate.stream(query, Students.class)) {
+            for (Students student : (Iterable<Students>) students::iterator) {
+                batch.add(student);
+                if (batch.size() == STREAM_BATCH_SIZE) {
+                    created += createMissingSummaries(batch, feeStructure);
+                    batch.clear();
+                }
+            }
+        }
+        return created + createMissingSummaries(batch, feeStructure);
+    }
+
+    private long createMissingSummaries(List<Students> students, FeeStructure feeStructure) {
+        if (students.isEmpty()) {
+            return 0;
+        }
+        Query existing = Query.query(Criteria.where("studentId").in(
+                students.stream().map(Students::getStudentId).collect(Collectors.toList())));
+        existing.fields().include("studentId");
+        Set<String> withSummary = mongoTemplate.find(existing, StudentFeeSummary.class).stream()
+                .map(StudentFeeSummary::getStudentId)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        List<Students> missing = students.stream()
+                .filter(student -> !withSummary.contains(student.getStudentId()))
+                .collect(Collectors.toList());
+        return paymentService.ensureFeeSummaries(missing, feeStructure);
+    }
+
+    /**
+     * Add the entry to every summary of the class that lacks it, in one updateMulti,
+     * after recording the charges in the ledger
+     */
+    private long addEntryToClass(String className, Payment.PaymentType feeType, String period, Object detail,
+                                 double total, LocalDateTime dueDate) {
+        String path = (feeType == Payment.PaymentType.MONTHLY ? "monthlyFees." : "annualFees.") + period;
+        Query missing = Query.query(Criteria.where("className").is(className).and(path).exists(false));
+        missing.fields().include("studentId");
+        List<String> studentIds = mongoTemplate.find(missing, StudentFeeSummary.class).stream()
+                .map(StudentFeeSummary::getStudentId)
+                .collect(Collectors.toList());
+        if (studentIds.isEmpty()) {
+            return 0;
+        }
+
+        List<LedgerEntry> charges = studentIds.stream()
+                .map(studentId -> ledgerService.newCharge(studentId, feeType, period, total, dueDate))
+                .collect(Collectors.toList());
+        ledgerService.recordAll(charges);
+
+        Query query = Query.query(Criteria.where("studentId").in(studentIds).and(path).exists(false));
+        Update update = new Update()
+                .set(path, detail)
+                .inc("totalFeesAmount", total)
+                .inc("totalPendingAmount", total)
+                .min("nextDueDate", dueDate)
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        return mongoTemplate.updateMulti(query, update, StudentFeeSummary.class).getModifiedCount();
+    }
+
+    /**
+     * Walk the candidate summaries in _id order and update each batch with one updateMany
+     */
+    private void markOverdue(LocalDateTime now, boolean fullScan, OverdueRunReport report) {
+        Date cutoff = Date.from(now.atZone(ZoneId.systemDefault()).toInstant());
+        List<Bson> pipeline = overduePipeline(cutoff);
+        String collection = mongoTemplate.getCollectionName(StudentFeeSummary.class);
+
+        Object lastId = null;
+        while (true) {
+            Query query = fullScan ? new Query() : Query.query(Criteria.where("nextDueDate").lt(now));
+            if (lastId != null) {
+                query.addCriteria(Criteria.where("_id").gt(lastId));
+            }
+            query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+            query.fields().include("_id");
+
+            List<Object> ids = mongoTemplate.find(query, Document.class, collection).stream()
+                    .map(document -> document.get("_id"))
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                return;
+            }
+
+            long modified = mongoTemplate.getCollection(collection)
+                    .updateMany(new Document("_id", new Document("$in", ids)), pipeline)
+                    .getModifiedCount();
+            report.setScannedSummaries(report.getScannedSummaries() + ids.size());
+            report.setUpdatedSummaries(report.getUpdatedSummaries() + modified);
+
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+
+    /**
+     * Flip unpaid entries due before the cutoff to OVERDUE, then recompute nextDueDate
+     * as the earliest due date still PENDING/PARTIAL, removing it when there is none
+     */
+    private List<Bson> overduePipeline(Date cutoff) {
+        Document flip = new Document()
+                .append("monthlyFees", markOverdueEntries("$monthlyFees", cutoff))
+                .append("annualFees", markOverdueEntries("$annualFees", cutoff));
+
+        Document unpaidDueDates = new Document("$map", new Document("input",
+                new Document("$filter", new Document("input", new Document("$concatArrays", List.of(
+                        entries("$monthlyFees"), entries("$annualFees"))))
+                        .append("as", "entry")
+                        .append("cond", isUnpaidWithDueDate("$$entry.v"))))
+                .append("as", "entry")
+                .append("in", "$$entry.v.dueDate"));
+
+        // version is left alone: the flip is idempotent, and a batch payment that rewrites
+        // an entry lowers nextDueDate again, so the next run flips it back if still due
+        Document recompute = new Document("nextDueDate",
+                new Document("$ifNull", List.of(new Document("$min", unpaidDueDates), "$$REMOVE")));
+
+        return List.of(new Document("$set", flip), new Document("$set", recompute));
+    }
+
+    private Document markOverdueEntries(String field, Date cutoff) {
+        Document overdue = new Document("$and", List.of(
+                isUnpaidWithDueDate("$$entry.v"),
+                new Document("$lt", List.of("$$entry.v.dueDate", cutoff))));
+
+        return new Document("$arrayToObject", new Document("$map", new Document("input", entries(field))
+                .append("as", "entry")
+                .append("in", new Document("k", "$$entry.k")
+                        .append("v", new Document("$cond", List.of(
+                                overdue,
+                                new Document("$mergeObjects", List.of("$$entry.v", new Document("status", "OVERDUE"))),
+                                "$$entry.v"))))));
+    }
+
+    private Document entries(String field) {
+        return new Document("$objectToArray", new Document("$ifNull", List.of(field, new Document())));
+    }
+
+    private Document isUnpaidWithDueDate(String entry) {
+        return new Document("$and", List.of(
+                new Document("$in", List.of(entry + ".status", UNPAID_STATUSES)),
+                new Document("$eq", List.of(new Document("$type", entry + ".dueDate"), "date"))));
+    }
+
+    private double orZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
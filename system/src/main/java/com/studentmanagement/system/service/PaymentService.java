@@ -1,215 +1,586 @@
 package com.studentmanagement.system.service;
 
 import com.studentmanagement.system.dto.CreatePaymentRequest;
+import com.studentmanagement.system.dto.FeeAdjustmentRequest;
 import com.studentmanagement.system.model.*;
 import com.studentmanagement.system.repository.*;
 import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.IdGenerator;
+import com.studentmanagement.system.util.StripedLock;
 import jakarta.validation.Valid;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
 
+    private static final int LOCK_STRIPES = 64;
+
+    // Serializes payments for the same student within this node
+    private final StripedLock studentLocks = new StripedLock(LOCK_STRIPES);
+
     private final PaymentRepository paymentRepository;
-    private final StudentRepository studentRepository;
-    private final FeeStructureRepository feeStructureRepository;
+    private final StudentService studentService;
+    private final FeeStructureCache feeStructureCache;
     private final StudentFeeSummaryRepository feeSummaryRepository;
+    private final MongoTemplate mongoTemplate;
+    private final RevenueRollupService revenueRollupService;
+    private final LedgerService ledgerService;
+    private final IdGenerator idGenerator;
+
+    /**
+     * Outcome of one item of a payment batch: either the saved payment or an error
+     */
+    @Data
+    @AllArgsConstructor
+    public static class BatchItemResult {
+        private int index;
+        private Payment payment;
+        private String error;
+    }
+
+    /**
+     * What a single payment changed on the fee summary, so it can be taken back out
+     * when the payment document is not saved
+     */
+    @Data
+    private static class AppliedPayment {
+        private final LedgerEntry entry;
+        private final StudentFeeSummary feeSummary;  // State right after the $inc
+        private final String entryPath;              // Monthly/annual entry, null for admission
+        private final boolean entryAdded;            // The payment created that entry
+        private final double entryTotal;
+        private final String paidField;
+        private final String pendingField;
+        private final double amount;
+        private double paid;                         // Entry amounts right after the $inc
+        private double pending;                      // Negative when overpaid
+        private boolean clamped;                     // The overpaid entry was settled to zero pending
+    }
 
     /**
      * Process a payment (admission, monthly, or annual)
+     * The fee summary is updated with targeted $inc/$set operations, so the
+     * write size does not grow with the student's payment history. Each change
+     * is recorded in the payment ledger before it is applied to the summary.
      */
-    @Transactional
     public Payment processPayment(@Valid CreatePaymentRequest request, String createdBy) {
+        return processPayment(request, createdBy, () -> { });
+    }
+
+    /**
+     * Process a payment, running beforeApply once the student's lock is held and the
+     * request is validated, right before anything is written; an exception from it
+     * aborts the payment
+     */
+    public Payment processPayment(@Valid CreatePaymentRequest request, String createdBy, Runnable beforeApply) {
         AppLogger.info("Processing payment for student: " + request.getStudentId());
 
+        Lock lock = studentLocks.get(request.getStudentId());
+        lock.lock();
+        try {
+            return applyPayment(request, createdBy, beforeApply);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Payment applyPayment(CreatePaymentRequest request, String createdBy, Runnable beforeApply) {
         // Validate student exists
-        Students student = studentRepository.findByStudentId(request.getStudentId())
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND,
-                        "Student not found: " + request.getStudentId()
-                ));
+        Students student = studentService.getStudentByStudentId(request.getStudentId());
 
         // Get fee structure for the student's class
-        FeeStructure feeStructure = feeStructureRepository
-                .findByClassNameAndIsActive(student.getClassName(), true)
+        FeeStructure feeStructure = feeStructureCache
+                .getActive(student.getClassName())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Fee structure not found for class: " + student.getClassName()
                 ));
 
         // Create payment record
-        Payment payment = new Payment();
-        payment.setPaymentId(generatePaymentId());
-        payment.setStudentId(student.getStudentId());
-        payment.setStudentName(student.getFullName());
-        payment.setPaymentType(request.getPaymentType());
-        payment.setAmountPaid(request.getAmountPaid());
-        payment.setPaymentMethod(request.getPaymentMethod());
-        payment.setTransactionReference(request.getTransactionReference());
-        payment.setRemarks(request.getRemarks());
-        payment.setPaymentDate(LocalDateTime.now());
-        payment.setCreatedAt(LocalDateTime.now());
-        payment.setUpdatedAt(LocalDateTime.now());
-        payment.setCreatedBy(createdBy);
-
-        // Set total amount and calculate pending based on payment type
-        Double totalAmount = getTotalAmountForPaymentType(feeStructure, request.getPaymentType());
-        payment.setTotalAmount(totalAmount);
+        Payment payment = newPayment(student, feeStructure, request, createdBy);
+        String period = switch (request.getPaymentType()) {
+            case ADMISSION -> null;
+            case MONTHLY -> setMonthlyPeriod(payment, request);
+            case ANNUAL -> setAnnualPeriod(payment, request);
+        };
+        beforeApply.run();
 
-        // Get or create student fee summary
-        StudentFeeSummary feeSummary = feeSummaryRepository
-                .findByStudentId(student.getStudentId())
-                .orElseGet(() -> createNewFeeSummary(student, feeStructure));
+        // Make sure the student has a fee summary to increment
+        ensureFeeSummary(student, feeStructure);
 
         // Process based on payment type
-        switch (request.getPaymentType()) {
-            case ADMISSION:
-                processAdmissionPayment(payment, feeSummary, request.getAmountPaid());
-                break;
-            case MONTHLY:
-                processMonthlyPayment(payment, feeSummary, request, feeStructure.getMonthlyFee());
-                break;
-            case ANNUAL:
-                processAnnualPayment(payment, feeSummary, request, feeStructure.getAnnualFee());
-                break;
-        }
-
-        // Update totals in fee summary
-        updateFeeSummaryTotals(feeSummary);
+        AppliedPayment applied = switch (request.getPaymentType()) {
+            case ADMISSION -> applyAdmissionPayment(payment, request.getAmountPaid());
+            case MONTHLY -> applyMonthlyPayment(payment, request, period, feeStructure.getMonthlyFee());
+            case ANNUAL -> applyAnnualPayment(payment, request, period, feeStructure.getAnnualFee());
+        };
 
-        // Save payment and fee summary
-        Payment savedPayment = paymentRepository.save(payment);
-        feeSummaryRepository.save(feeSummary);
+        Payment savedPayment;
+        try {
+            savedPayment = paymentRepository.save(payment);
+        } catch (RuntimeException e) {
+            AppLogger.error("Payment " + payment.getPaymentId() + " not saved, taking it back out of the fee summary: "
+                    + e.getMessage());
+            undoPayment(applied);
+            throw e;
+        }
+        revenueRollupService.record(savedPayment);
 
         AppLogger.info("Payment processed successfully: " + savedPayment.getPaymentId());
         return savedPayment;
     }
 
     /**
-     * Process admission fee payment
+     * Apply admission fee payment
      */
-    private void processAdmissionPayment(Payment payment, StudentFeeSummary feeSummary, Double amountPaid) {
-        Double currentPaid = feeSummary.getAdmissionFeePaid();
-        Double newPaidAmount = currentPaid + amountPaid;
+    private AppliedPayment applyAdmissionPayment(Payment payment, Double amountPaid) {
+        AppliedPayment applied = recordAndIncrementPaid(ledgerService.newPayment(payment, null, null),
+                null, null, "admissionFeePaid", "admissionFeePending", amountPaid);
+        StudentFeeSummary feeSummary = applied.getFeeSummary();
 
-        feeSummary.setAdmissionFeePaid(newPaidAmount);
-        feeSummary.setAdmissionFeePending(feeSummary.getAdmissionFeeTotal() - newPaidAmount);
+        double paid = feeSummary.getAdmissionFeePaid();
+        double pending = feeSummary.getAdmissionFeePending();
+        boolean completed = pending <= 0;
 
-        payment.setPendingAmount(feeSummary.getAdmissionFeePending());
+        applied.setClamped(settleFeeEntry(payment.getStudentId(), "admissionFeePaid", "admissionFeePending",
+                paid, pending, new Update().set("admissionFeeCompleted", completed)));
+        applied.setPaid(paid);
+        applied.setPending(pending);
 
-        if (feeSummary.getAdmissionFeePending() <= 0) {
-            payment.setStatus(Payment.PaymentStatus.PAID);
-            feeSummary.setAdmissionFeeCompleted(true);
-            feeSummary.setAdmissionFeePending(0.0);
-        } else {
-            payment.setStatus(Payment.PaymentStatus.PARTIAL);
-            feeSummary.setAdmissionFeeCompleted(false);
-        }
+        payment.setPendingAmount(Math.max(pending, 0.0));
+        payment.setStatus(completed ? Payment.PaymentStatus.PAID : Payment.PaymentStatus.PARTIAL);
+        return applied;
+    }
+
+    /**
+     * Apply monthly fee payment
+     */
+    private AppliedPayment applyMonthlyPayment(Payment payment, CreatePaymentRequest request, String monthYearKey,
+                                               Double monthlyFee) {
+        // Create the month entry the first time it is paid
+        String path = "monthlyFees." + monthYearKey;
+        StudentFeeSummary.MonthlyFeeDetail newDetail = newMonthlyDetail(monthlyFee, request);
+        AppliedPayment applied = recordAndIncrementPaid(
+                ledgerService.newPayment(payment, monthYearKey, newDetail),
+                path, newDetail, path + ".paid", path + ".pending", request.getAmountPaid());
+        StudentFeeSummary.MonthlyFeeDetail monthlyDetail = applied.getFeeSummary().getMonthlyFees().get(monthYearKey);
 
-        feeSummary.setLastPaymentDate(LocalDateTime.now());
+        String status = monthlyDetail.getPending() <= 0 ? "PAID" : "PARTIAL";
+        applied.setClamped(settleFeeEntry(payment.getStudentId(), path + ".paid", path + ".pending",
+                monthlyDetail.getPaid(), monthlyDetail.getPending(),
+                entryStatusUpdate(path, status, monthlyDetail.getDueDate())));
+        applied.setPaid(monthlyDetail.getPaid());
+        applied.setPending(monthlyDetail.getPending());
+
+        payment.setPendingAmount(Math.max(monthlyDetail.getPending(), 0.0));
+        payment.setStatus(Payment.PaymentStatus.valueOf(status));
+        return applied;
     }
 
     /**
-     * Process monthly fee payment
+     * Apply annual fee payment
      */
-    private void processMonthlyPayment(Payment payment, StudentFeeSummary feeSummary,
-                                       CreatePaymentRequest request, Double monthlyFee) {
-        if (request.getMonth() == null || request.getYear() == null) {
-            throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST,
-                    "Month and year are required for monthly payment"
-            );
+    private AppliedPayment applyAnnualPayment(Payment payment, CreatePaymentRequest request, String yearKey,
+                                              Double annualFee) {
+        // Create the year entry the first time it is paid
+        String path = "annualFees." + yearKey;
+        StudentFeeSummary.AnnualFeeDetail newDetail = newAnnualDetail(annualFee, request);
+        AppliedPayment applied = recordAndIncrementPaid(
+                ledgerService.newPayment(payment, yearKey, newDetail),
+                path, newDetail, path + ".paid", path + ".pending", request.getAmountPaid());
+        StudentFeeSummary.AnnualFeeDetail annualDetail = applied.getFeeSummary().getAnnualFees().get(yearKey);
+
+        String status = annualDetail.getPending() <= 0 ? "PAID" : "PARTIAL";
+        applied.setClamped(settleFeeEntry(payment.getStudentId(), path + ".paid", path + ".pending",
+                annualDetail.getPaid(), annualDetail.getPending(),
+                entryStatusUpdate(path, status, annualDetail.getDueDate())));
+        applied.setPaid(annualDetail.getPaid());
+        applied.setPending(annualDetail.getPending());
+
+        payment.setPendingAmount(Math.max(annualDetail.getPending(), 0.0));
+        payment.setStatus(Payment.PaymentStatus.valueOf(status));
+        return applied;
+    }
+
+    /**
+     * Process a batch of payments (admission, monthly, or annual)
+     * Uncached students and fee summaries are prefetched with $in queries (fee structures
+     * come from the cache),
+     * payments are applied per student in memory and everything is flushed
+     * with unordered bulk writes: ledger entries, then payments, then summaries.
+     * Items fail on their own, except that a student's summary is only written
+     * when all of their payments were saved.
+     */
+    public List<BatchItemResult> processPaymentBatch(List<CreatePaymentRequest> requests, String createdBy) {
+        AppLogger.info("Processing payment batch of " + requests.size() + " payments");
+
+        // Group items by student, keeping submission order within each student
+        Map<String, List<Integer>> itemsByStudent = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            itemsByStudent.computeIfAbsent(requests.get(i).getStudentId(), k -> new ArrayList<>()).add(i);
         }
 
-        String monthYearKey = String.format("%02d-%d", request.getMonth(), request.getYear());
-        payment.setMonth(request.getMonth());
-        payment.setYear(request.getYear());
-        payment.setPaymentPeriod(getMonthName(request.getMonth()) + " " + request.getYear());
+        List<BatchItemResult> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+
+        List<Lock> locks = studentLocks.getAll(itemsByStudent.keySet());
+        locks.forEach(Lock::lock);
+        try {
+            applyPaymentBatch(requests, itemsByStudent, results, createdBy);
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+
+        long failed = results.stream().filter(result -> result.getError() != null).count();
+        AppLogger.info("Payment batch processed: " + (requests.size() - failed) + " succeeded, "
+                + failed + " failed");
+        return results;
+    }
+
+    private void applyPaymentBatch(List<CreatePaymentRequest> requests, Map<String, List<Integer>> itemsByStudent,
+                                   List<BatchItemResult> results, String createdBy) {
+        Map<String, Students> students = studentService.getStudentsByStudentIds(itemsByStudent.keySet());
+
+        Map<String, FeeStructure> feeStructures = new HashMap<>();
+        students.values().stream()
+                .map(Students::getClassName)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(className -> feeStructureCache.getActive(className)
+                        .ifPresent(feeStructure -> feeStructures.put(className, feeStructure)));
+
+        Map<String, StudentFeeSummary> summaries = feeSummaryRepository.findByStudentIdIn(itemsByStudent.keySet())
+                .stream()
+                .collect(Collectors.toMap(StudentFeeSummary::getStudentId, summary -> summary, (a, b) -> a));
+
+        // Marks the summaries written by this batch so partial bulk failures can be detected
+        String batchId = UUID.randomUUID().toString();
+        // Each student's summary insert or update, queued once their payments are saved
+        Map<String, Consumer<BulkOperations>> summaryWrites = new LinkedHashMap<>();
+        Map<String, List<Integer>> appliedItems = new LinkedHashMap<>();
+        Map<String, List<LedgerEntry>> paymentEntries = new HashMap<>();
+        Map<String, LedgerEntry> admissionCharges = new HashMap<>();
+
+        for (Map.Entry<String, List<Integer>> group : itemsByStudent.entrySet()) {
+            String studentId = group.getKey();
+            Students student = students.get(studentId);
+            if (student == null) {
+                failItems(results, group.getValue(), "Student not found: " + studentId);
+                continue;
+            }
+            FeeStructure feeStructure = feeStructures.get(student.getClassName());
+            if (feeStructure == null) {
+                failItems(results, group.getValue(), "Fee structure not found for class: " + student.getClassName());
+                continue;
+            }
+
+            StudentFeeSummary existing = summaries.get(studentId);
+            StudentFeeSummary feeSummary = existing != null ? existing : newFeeSummary(student, feeStructure);
+            Long expectedVersion = feeSummary.getVersion();
+            Update update = new Update();
+
+            // Generated before the payments so it replays first
+            LedgerEntry admissionCharge = existing == null ? admissionCharge(studentId, feeStructure) : null;
+            List<LedgerEntry> entries = new ArrayList<>();
+
+            List<Integer> applied = new ArrayList<>();
+            for (Integer index : group.getValue()) {
+                CreatePaymentRequest request = requests.get(index);
+                try {
+                    Payment payment = newPayment(student, feeStructure, request, createdBy);
+                    applyToSummary(payment, feeSummary, request, feeStructure, update, entries);
+                    results.set(index, new BatchItemResult(index, payment, null));
+                    applied.add(index);
+                } catch (ResponseStatusException e) {
+                    results.set(index, new BatchItemResult(index, null, e.getReason()));
+                }
+            }
+            if (applied.isEmpty()) {
+                continue;
+            }
 
-        // Get or create monthly fee detail
-        StudentFeeSummary.MonthlyFeeDetail monthlyDetail = feeSummary.getMonthlyFees()
-                .getOrDefault(monthYearKey, new StudentFeeSummary.MonthlyFeeDetail());
+            LocalDateTime now = LocalDateTime.now();
+            feeSummary.setLastPaymentDate(now);
+            feeSummary.setUpdatedAt(now);
+            feeSummary.setLastBatchId(batchId);
 
-        if (monthlyDetail.getTotal() == null) {
-            monthlyDetail.setTotal(monthlyFee);
-            monthlyDetail.setPaid(0.0);
-            monthlyDetail.setPending(monthlyFee);
-            // Set due date to 5th of the month
-            monthlyDetail.setDueDate(LocalDateTime.of(request.getYear(), request.getMonth(), 5, 0, 0));
+            if (existing == null) {
+                feeSummary.setVersion(0L);
+                summaryWrites.put(studentId, ops -> ops.insert(feeSummary));
+            } else {
+                update.set("totalFeesAmount", feeSummary.getTotalFeesAmount())
+                        .set("totalPaidAmount", feeSummary.getTotalPaidAmount())
+                        .set("totalPendingAmount", feeSummary.getTotalPendingAmount())
+                        .set("lastPaymentDate", now)
+                        .set("updatedAt", now)
+                        .set("lastBatchId", batchId)
+                        .inc("version", 1);
+                Query query = new Query(Criteria.where("_id").is(feeSummary.getId())
+                        .and("version").is(expectedVersion));
+                summaryWrites.put(studentId, ops -> ops.updateOne(query, update));
+            }
+            appliedItems.put(studentId, applied);
+            paymentEntries.put(studentId, entries);
+            if (admissionCharge != null) {
+                admissionCharges.put(studentId, admissionCharge);
+            }
         }
 
-        // Update with new payment
-        Double newPaid = monthlyDetail.getPaid() + request.getAmountPaid();
-        monthlyDetail.setPaid(newPaid);
-        monthlyDetail.setPending(monthlyDetail.getTotal() - newPaid);
+        if (appliedItems.isEmpty()) {
+            return;
+        }
 
-        if (monthlyDetail.getPending() <= 0) {
-            monthlyDetail.setStatus("PAID");
-            monthlyDetail.setPending(0.0);
-            payment.setStatus(Payment.PaymentStatus.PAID);
-        } else {
-            monthlyDetail.setStatus("PARTIAL");
-            payment.setStatus(Payment.PaymentStatus.PARTIAL);
+        // Ledger first, so no summary version holds a change the ledger lacks. Admission
+        // charges of summaries that end up not inserted are harmless: a rebuild leaves
+        // students without a summary alone, and whoever creates it records the same charge.
+        try {
+            List<LedgerEntry> ledgerEntries = new ArrayList<>(admissionCharges.values());
+            paymentEntries.values().forEach(ledgerEntries::addAll);
+            ledgerService.recordAll(ledgerEntries);
+        } catch (RuntimeException e) {
+            AppLogger.error("Ledger write failed for payment batch " + batchId + ": " + e.getMessage());
+            // Some entries may have been written; none of the summaries were
+            ledgerService.reversePayments(paymentEntries.values().stream()
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList()));
+            failItems(results, appliedItems.values().stream().flatMap(List::stream).collect(Collectors.toList()),
+                    "Failed to record payment in the ledger, please retry");
+            return;
+        }
+
+        // Payments before summaries, so no summary is credited with a payment that was not saved
+        for (String studentId : insertPayments(results, appliedItems)) {
+            withdrawItems(results, appliedItems.remove(studentId), paymentEntries.get(studentId),
+                    "Another payment of this student failed to save, please retry");
+        }
+        if (appliedItems.isEmpty()) {
+            return;
+        }
+
+        // Summaries changed by another node since the prefetch are not written; fail their items
+        BulkOperations summaryOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StudentFeeSummary.class);
+        appliedItems.keySet().forEach(studentId -> summaryWrites.get(studentId).accept(summaryOps));
+        for (String studentId : flushFeeSummaries(summaryOps, appliedItems.keySet(), batchId)) {
+            withdrawItems(results, appliedItems.remove(studentId), paymentEntries.get(studentId),
+                    "Fee summary was updated concurrently, please retry");
         }
 
-        payment.setPendingAmount(monthlyDetail.getPending());
-        feeSummary.getMonthlyFees().put(monthYearKey, monthlyDetail);
-        feeSummary.setLastPaymentDate(LocalDateTime.now());
+        revenueRollupService.recordAll(appliedItems.values().stream()
+                .flatMap(List::stream)
+                .map(index -> results.get(index).getPayment())
+                .collect(Collectors.toList()));
     }
 
     /**
-     * Process annual fee payment
+     * Insert the payments of the applied items with one unordered bulk write, failing
+     * the items that were not saved. Returns the students with an unsaved payment.
      */
-    private void processAnnualPayment(Payment payment, StudentFeeSummary feeSummary,
-                                      CreatePaymentRequest request, Double annualFee) {
-        if (request.getYear() == null) {
-            throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST,
-                    "Year is required for annual payment"
-            );
+    private Set<String> insertPayments(List<BatchItemResult> results, Map<String, List<Integer>> appliedItems) {
+        List<Integer> paymentItems = appliedItems.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        BulkOperations paymentOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Payment.class);
+        paymentItems.forEach(index -> paymentOps.insert(results.get(index).getPayment()));
+        try {
+            paymentOps.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            Set<String> unsaved = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                int index = paymentItems.get(error.getIndex());
+                AppLogger.error("Payment not saved for batch item " + index + ": " + error.getMessage());
+                unsaved.add(results.get(index).getPayment().getStudentId());
+                results.set(index, new BatchItemResult(index, null, "Failed to save payment: " + error.getMessage()));
+            }
+            return unsaved;
         }
+    }
 
-        String yearKey = String.valueOf(request.getYear());
-        payment.setYear(request.getYear());
-        payment.setPaymentPeriod("Year " + request.getYear());
+    /**
+     * Take back a student's applied items when their fee summary is not written:
+     * reverse the ledger entries, delete the payments already saved and fail every
+     * item that has no error of its own yet
+     */
+    private void withdrawItems(List<BatchItemResult> results, List<Integer> indexes, List<LedgerEntry> entries,
+                               String error) {
+        ledgerService.reversePayments(entries);
+        List<String> savedPaymentIds = indexes.stream()
+                .map(results::get)
+                .filter(result -> result.getError() == null)
+                .map(result -> result.getPayment().getPaymentId())
+                .collect(Collectors.toList());
+        if (!savedPaymentIds.isEmpty()) {
+            try {
+                mongoTemplate.remove(new Query(Criteria.where("paymentId").in(savedPaymentIds)), Payment.class);
+            } catch (RuntimeException e) {
+                AppLogger.error("Failed to delete payments " + savedPaymentIds
+                        + " whose fee summary was not written: " + e.getMessage());
+            }
+        }
+        for (Integer index : indexes) {
+            if (results.get(index).getError() == null) {
+                results.set(index, new BatchItemResult(index, null, error));
+            }
+        }
+    }
+
+    /**
+     * Execute the summary bulk write and return the students whose summary was not written
+     */
+    private Set<String> flushFeeSummaries(BulkOperations summaryOps, Set<String> studentIds, String batchId) {
+        try {
+            BulkWriteResult result = summaryOps.execute();
+            if (result.getInsertedCount() + result.getMatchedCount() == studentIds.size()) {
+                return Set.of();
+            }
+        } catch (BulkOperationException e) {
+            AppLogger.warn("Fee summary bulk write had " + e.getErrors().size() + " errors");
+        }
+
+        Query query = new Query(Criteria.where("studentId").in(studentIds).and("lastBatchId").is(batchId));
+        query.fields().include("studentId");
+        Set<String> written = mongoTemplate.find(query, StudentFeeSummary.class).stream()
+                .map(StudentFeeSummary::getStudentId)
+                .collect(Collectors.toSet());
 
-        // Get or create annual fee detail
-        StudentFeeSummary.AnnualFeeDetail annualDetail = feeSummary.getAnnualFees()
-                .getOrDefault(yearKey, new StudentFeeSummary.AnnualFeeDetail());
+        Set<String> notWritten = new HashSet<>(studentIds);
+        notWritten.removeAll(written);
+        return notWritten;
+    }
 
-        if (annualDetail.getTotal() == null) {
-            annualDetail.setTotal(annualFee);
-            annualDetail.setPaid(0.0);
-            annualDetail.setPending(annualFee);
-            annualDetail.setDueDate(LocalDateTime.of(request.getYear(), 1, 31, 0, 0));
+    private void failItems(List<BatchItemResult> results, List<Integer> indexes, String error) {
+        for (Integer index : indexes) {
+            results.set(index, new BatchItemResult(index, null, error));
         }
+    }
 
-        // Update with new payment
-        Double newPaid = annualDetail.getPaid() + request.getAmountPaid();
-        annualDetail.setPaid(newPaid);
-        annualDetail.setPending(annualDetail.getTotal() - newPaid);
+    /**
+     * Apply a payment to an in-memory summary, recording the changed fields in the update
+     * and the payment's ledger entry. Mirrors the atomic single-payment path, including
+     * clamping overpayments.
+     */
+    private void applyToSummary(Payment payment, StudentFeeSummary feeSummary, CreatePaymentRequest request,
+                                FeeStructure feeStructure, Update update, List<LedgerEntry> entries) {
+        double amount = request.getAmountPaid();
 
-        if (annualDetail.getPending() <= 0) {
-            annualDetail.setStatus("PAID");
-            annualDetail.setPending(0.0);
-            payment.setStatus(Payment.PaymentStatus.PAID);
-        } else {
-            annualDetail.setStatus("PARTIAL");
-            payment.setStatus(Payment.PaymentStatus.PARTIAL);
+        switch (request.getPaymentType()) {
+            case ADMISSION -> {
+                entries.add(ledgerService.newPayment(payment, null, null));
+                double pending = applyToTotals(feeSummary,
+                        orZero(feeSummary.getAdmissionFeePending()) - amount, amount);
+                feeSummary.setAdmissionFeePaid(orZero(feeSummary.getAdmissionFeePaid()) + amount);
+                feeSummary.setAdmissionFeePending(pending);
+                feeSummary.setAdmissionFeeCompleted(pending <= 0);
+
+                update.set("admissionFeePaid", feeSummary.getAdmissionFeePaid())
+                        .set("admissionFeePending", pending)
+                        .set("admissionFeeCompleted", pending <= 0);
+                payment.setPendingAmount(pending);
+                payment.setStatus(pending <= 0 ? Payment.PaymentStatus.PAID : Payment.PaymentStatus.PARTIAL);
+            }
+            case MONTHLY -> {
+                String monthYearKey = setMonthlyPeriod(payment, request);
+                StudentFeeSummary.MonthlyFeeDetail detail = feeSummary.getMonthlyFees().get(monthYearKey);
+                if (detail == null) {
+                    detail = newMonthlyDetail(feeStructure.getMonthlyFee(), request);
+                    addToTotals(feeSummary, detail.getTotal());
+                    feeSummary.getMonthlyFees().put(monthYearKey, detail);
+                }
+                entries.add(ledgerService.newPayment(payment, monthYearKey,
+                        newMonthlyDetail(feeStructure.getMonthlyFee(), request)));
+
+                double pending = applyToTotals(feeSummary, detail.getPending() - amount, amount);
+                detail.setPaid(detail.getPaid() + amount);
+                detail.setPending(pending);
+                detail.setStatus(pending <= 0 ? "PAID" : "PARTIAL");
+
+                update.set("monthlyFees." + monthYearKey, detail);
+                if (pending > 0) {
+                    trackDueDate(feeSummary, detail.getDueDate(), update);
+                }
+                payment.setPendingAmount(pending);
+                payment.setStatus(Payment.PaymentStatus.valueOf(detail.getStatus()));
+            }
+            case ANNUAL -> {
+                String yearKey = setAnnualPeriod(payment, request);
+                StudentFeeSummary.AnnualFeeDetail detail = feeSummary.getAnnualFees().get(yearKey);
+                if (detail == null) {
+                    detail = newAnnualDetail(feeStructure.getAnnualFee(), request);
+                    addToTotals(feeSummary, detail.getTotal());
+                    feeSummary.getAnnualFees().put(yearKey, detail);
+                }
+                entries.add(ledgerService.newPayment(payment, yearKey,
+                        newAnnualDetail(feeStructure.getAnnualFee(), request)));
+
+                double pending = applyToTotals(feeSummary, detail.getPending() - amount, amount);
+                detail.setPaid(detail.getPaid() + amount);
+                detail.setPending(pending);
+                detail.setStatus(pending <= 0 ? "PAID" : "PARTIAL");
+
+                update.set("annualFees." + yearKey, detail);
+                if (pending > 0) {
+                    trackDueDate(feeSummary, detail.getDueDate(), update);
+                }
+                payment.setPendingAmount(pending);
+                payment.setStatus(Payment.PaymentStatus.valueOf(detail.getStatus()));
+            }
+        }
+    }
+
+    /**
+     * Lower nextDueDate to an unpaid entry's due date, on the in-memory summary (used
+     * when it is inserted) and in the update. The update always carries the summary's
+     * minimum, so several items of one student cannot raise it again.
+     */
+    private void trackDueDate(StudentFeeSummary feeSummary, LocalDateTime dueDate, Update update) {
+        if (feeSummary.getNextDueDate() == null || dueDate.isBefore(feeSummary.getNextDueDate())) {
+            feeSummary.setNextDueDate(dueDate);
         }
+        update.min("nextDueDate", feeSummary.getNextDueDate());
+    }
 
-        payment.setPendingAmount(annualDetail.getPending());
-        feeSummary.getAnnualFees().put(yearKey, annualDetail);
-        feeSummary.setLastPaymentDate(LocalDateTime.now());
+    /**
+     * Add a newly created fee entry to the running totals
+     */
+    private void addToTotals(StudentFeeSummary feeSummary, double total) {
+        feeSummary.setTotalFeesAmount(orZero(feeSummary.getTotalFeesAmount()) + total);
+        feeSummary.setTotalPendingAmount(orZero(feeSummary.getTotalPendingAmount()) + total);
+    }
+
+    /**
+     * Move an amount from pending to paid on the running totals and return the entry's
+     * pending amount, clamped to zero when overpaid
+     */
+    private double applyToTotals(StudentFeeSummary feeSummary, double pending, double amount) {
+        feeSummary.setTotalPaidAmount(orZero(feeSummary.getTotalPaidAmount()) + amount);
+        feeSummary.setTotalPendingAmount(orZero(feeSummary.getTotalPendingAmount()) - amount);
+        if (pending < 0) {
+            feeSummary.setTotalPendingAmount(feeSummary.getTotalPendingAmount() - pending);
+            feeSummary.setTotalFeesAmount(orZero(feeSummary.getTotalFeesAmount()) - pending);
+            return 0.0;
+        }
+        return pending;
     }
 
     /**
@@ -241,45 +612,449 @@ public class PaymentService {
                 ));
     }
 
+    /**
+     * Discount, waive or correct one fee entry by a signed amount
+     * The adjustment is recorded in the ledger first and then applied with $inc,
+     * changing the entry's total and pending amounts and the summary totals.
+     */
+    public StudentFeeSummary applyAdjustment(FeeAdjustmentRequest request, String createdBy) {
+        AppLogger.info("Adjusting " + request.getFeeType() + " fee for student: " + request.getStudentId());
+
+        Lock lock = studentLocks.get(request.getStudentId());
+        lock.lock();
+        try {
+            return adjustFeeEntry(request, createdBy);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private StudentFeeSummary adjustFeeEntry(FeeAdjustmentRequest request, String createdBy) {
+        double amount = request.getAmount();
+        if (amount == 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Adjustment amount must not be zero"
+            );
+        }
+
+        StudentFeeSummary current = getStudentFeeSummary(request.getStudentId());
+        String period = null;
+        String path = null;
+        double pending;
+        switch (request.getFeeType()) {
+            case MONTHLY -> {
+                if (request.getMonth() == null || request.getYear() == null) {
+                    throw new ResponseStatusException(
+                            HttpStatus.BAD_REQUEST,
+                            "Month and year are required for monthly fee adjustment"
+                    );
+                }
+                period = StudentFeeSummary.monthKey(request.getMonth(), request.getYear());
+                path = "monthlyFees." + period;
+                pending = pendingOf(current.getMonthlyFees().get(period), "monthly", period);
+            }
+            case ANNUAL -> {
+                if (request.getYear() == null) {
+                    throw new ResponseStatusException(
+                            HttpStatus.BAD_REQUEST,
+                            "Year is required for annual fee adjustment"
+                    );
+                }
+                period = String.valueOf(request.getYear());
+                path = "annualFees." + period;
+                pending = pendingOf(current.getAnnualFees().get(period), "annual", period);
+            }
+            default -> pending = orZero(current.getAdmissionFeePending());
+        }
+        if (pending + amount < 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Adjustment of " + amount + " exceeds the pending amount of " + pending
+            );
+        }
+
+        ledgerService.record(ledgerService.newAdjustment(request.getStudentId(), request.getFeeType(),
+                period, amount, request.getReason(), createdBy));
+
+        String totalField = path != null ? path + ".total" : "admissionFeeTotal";
+        String pendingField = path != null ? path + ".pending" : "admissionFeePending";
+        Update update = new Update()
+                .inc(totalField, amount)
+                .inc(pendingField, amount)
+                .inc("totalFeesAmount", amount)
+                .inc("totalPendingAmount", amount)
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        StudentFeeSummary feeSummary = mongoTemplate.findAndModify(
+                byStudentId(request.getStudentId()),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                StudentFeeSummary.class
+        );
+        if (feeSummary == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Fee summary was removed while adjusting fees for student: " + request.getStudentId()
+            );
+        }
+
+        // Status follows the new pending amount; an entry still unpaid stays OVERDUE
+        Update status;
+        if (path == null) {
+            boolean completed = feeSummary.getAdmissionFeePending() <= 0;
+            feeSummary.setAdmissionFeeCompleted(completed);
+            status = new Update().set("admissionFeeCompleted", completed);
+        } else {
+            StudentFeeSummary.FeeDetail detail = request.getFeeType() == Payment.PaymentType.MONTHLY
+                    ? feeSummary.getMonthlyFees().get(period)
+                    : feeSummary.getAnnualFees().get(period);
+            if (detail.getPending() <= 0) {
+                detail.setStatus("PAID");
+            } else if (!"OVERDUE".equals(detail.getStatus())) {
+                detail.setStatus(orZero(detail.getPaid()) > 0 ? "PARTIAL" : "PENDING");
+            }
+            status = entryStatusUpdate(path, detail.getStatus(), detail.getDueDate());
+        }
+        mongoTemplate.updateFirst(byStudentId(request.getStudentId()), status.inc("version", 1),
+                StudentFeeSummary.class);
+
+        AppLogger.info("Fee adjusted for student " + request.getStudentId() + ": " + amount
+                + " (" + request.getReason() + ")");
+        return feeSummary;
+    }
+
+    private double pendingOf(StudentFeeSummary.FeeDetail detail, String kind, String period) {
+        if (detail == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND,
+                    "No " + kind + " fee entry for " + period
+            );
+        }
+        return orZero(detail.getPending());
+    }
+
     // ============= HELPER METHODS =============
 
-    private StudentFeeSummary createNewFeeSummary(Students student, FeeStructure feeStructure) {
+    private Payment newPayment(Students student, FeeStructure feeStructure,
+                               CreatePaymentRequest request, String createdBy) {
+        Payment payment = new Payment();
+        payment.setPaymentId(generatePaymentId());
+        payment.setStudentId(student.getStudentId());
+        payment.setStudentName(student.getFullName());
+        payment.setClassName(student.getClassName());
+        payment.setPaymentType(request.getPaymentType());
+        payment.setAmountPaid(request.getAmountPaid());
+        payment.setPaymentMethod(request.getPaymentMethod());
+        payment.setTransactionReference(request.getTransactionReference());
+        payment.setRemarks(request.getRemarks());
+        payment.setPaymentDate(LocalDateTime.now());
+        payment.setCreatedAt(LocalDateTime.now());
+        payment.setUpdatedAt(LocalDateTime.now());
+        payment.setCreatedBy(createdBy);
+
+        // Set total amount and calculate pending based on payment type
+        Double totalAmount = getTotalAmountForPaymentType(feeStructure, request.getPaymentType());
+        payment.setTotalAmount(totalAmount);
+        return payment;
+    }
+
+    /**
+     * Validate month/year and set the payment period, returning the "MM-YYYY" summary key
+     */
+    private String setMonthlyPeriod(Payment payment, CreatePaymentRequest request) {
+        if (request.getMonth() == null || request.getYear() == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Month and year are required for monthly payment"
+            );
+        }
+        if (request.getMonth() < 1 || request.getMonth() > 12) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Month must be between 1 and 12: " + request.getMonth()
+            );
+        }
+
+        payment.setMonth(request.getMonth());
+        payment.setYear(request.getYear());
+        payment.setPaymentPeriod(getMonthName(request.getMonth()) + " " + request.getYear());
+        return StudentFeeSummary.monthKey(request.getMonth(), request.getYear());
+    }
+
+    /**
+     * Validate year and set the payment period, returning the "YYYY" summary key
+     */
+    private String setAnnualPeriod(Payment payment, CreatePaymentRequest request) {
+        if (request.getYear() == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Year is required for annual payment"
+            );
+        }
+
+        payment.setYear(request.getYear());
+        payment.setPaymentPeriod("Year " + request.getYear());
+        return String.valueOf(request.getYear());
+    }
+
+    private StudentFeeSummary.MonthlyFeeDetail newMonthlyDetail(Double monthlyFee, CreatePaymentRequest request) {
+        return StudentFeeSummary.MonthlyFeeDetail.unpaid(orZero(monthlyFee), request.getYear(), request.getMonth());
+    }
+
+    private StudentFeeSummary.AnnualFeeDetail newAnnualDetail(Double annualFee, CreatePaymentRequest request) {
+        return StudentFeeSummary.AnnualFeeDetail.unpaid(orZero(annualFee), request.getYear());
+    }
+
+    /**
+     * Empty fee summary for a student who has not paid anything yet
+     */
+    private StudentFeeSummary newFeeSummary(Students student, FeeStructure feeStructure) {
+        double admissionFee = orZero(feeStructure.getAdmissionFee());
         StudentFeeSummary summary = new StudentFeeSummary();
         summary.setStudentId(student.getStudentId());
         summary.setStudentName(student.getFullName());
         summary.setClassName(student.getClassName());
-        summary.setAdmissionFeeTotal(feeStructure.getAdmissionFee());
+        summary.setAdmissionFeeTotal(admissionFee);
         summary.setAdmissionFeePaid(0.0);
-        summary.setAdmissionFeePending(feeStructure.getAdmissionFee());
+        summary.setAdmissionFeePending(admissionFee);
         summary.setAdmissionFeeCompleted(false);
-        summary.setTotalFeesAmount(0.0);
+        summary.setTotalFeesAmount(admissionFee);
         summary.setTotalPaidAmount(0.0);
-        summary.setTotalPendingAmount(0.0);
+        summary.setTotalPendingAmount(admissionFee);
         summary.setCreatedAt(LocalDateTime.now());
         summary.setUpdatedAt(LocalDateTime.now());
         return summary;
     }
 
-    private void updateFeeSummaryTotals(StudentFeeSummary feeSummary) {
-        Double totalPaid = feeSummary.getAdmissionFeePaid();
-        Double totalPending = feeSummary.getAdmissionFeePending();
+    /**
+     * Insert an empty fee summary for the student unless one already exists. Its
+     * admission fee is recorded in the ledger first, like every other change; if
+     * another node inserts the summary meanwhile, it records the same charge ID.
+     */
+    private void ensureFeeSummary(Students student, FeeStructure feeStructure) {
+        if (mongoTemplate.exists(byStudentId(student.getStudentId()), StudentFeeSummary.class)) {
+            return;
+        }
+        ledgerService.record(admissionCharge(student.getStudentId(), feeStructure));
+        try {
+            mongoTemplate.upsert(byStudentId(student.getStudentId()),
+                    feeSummaryOnInsert(student, feeStructure), StudentFeeSummary.class);
+        } catch (DuplicateKeyException e) {
+            // Another node inserted it first; the summary exists either way
+        }
+    }
 
-        // Add monthly fees
-        for (StudentFeeSummary.MonthlyFeeDetail detail : feeSummary.getMonthlyFees().values()) {
-            totalPaid += detail.getPaid();
-            totalPending += detail.getPending();
+    /**
+     * Insert empty fee summaries for the students that have none, with one bulk upsert,
+     * recording their admission fees in the ledger first. Returns the number created.
+     */
+    public int ensureFeeSummaries(Collection<Students> students, FeeStructure feeStructure) {
+        if (students.isEmpty()) {
+            return 0;
         }
+        Query existingQuery = new Query(Criteria.where("studentId")
+                .in(students.stream().map(Students::getStudentId).collect(Collectors.toList())));
+        existingQuery.fields().include("studentId");
+        Set<String> existing = mongoTemplate.find(existingQuery, StudentFeeSummary.class).stream()
+                .map(StudentFeeSummary::getStudentId)
+                .collect(Collectors.toSet());
+        List<Students> missing = students.stream()
+                .filter(student -> !existing.contains(student.getStudentId()))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return 0;
+        }
+
+        ledgerService.recordAll(missing.stream()
+                .map(student -> admissionCharge(student.getStudentId(), feeStructure))
+                .collect(Collectors.toList()));
 
-        // Add annual fees
-        for (StudentFeeSummary.AnnualFeeDetail detail : feeSummary.getAnnualFees().values()) {
-            totalPaid += detail.getPaid();
-            totalPending += detail.getPending();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StudentFeeSummary.class);
+        for (Students student : missing) {
+            ops.upsert(byStudentId(student.getStudentId()), feeSummaryOnInsert(student, feeStructure));
+        }
+        try {
+            return ops.execute().getUpserts().size();
+        } catch (BulkOperationException e) {
+            // Duplicate keys: other nodes inserted some first; those summaries exist either way
+            return e.getResult().getUpserts().size();
         }
+    }
 
-        feeSummary.setTotalPaidAmount(totalPaid);
-        feeSummary.setTotalPendingAmount(totalPending);
-        feeSummary.setTotalFeesAmount(totalPaid + totalPending);
-        feeSummary.setUpdatedAt(LocalDateTime.now());
+    private LedgerEntry admissionCharge(String studentId, FeeStructure feeStructure) {
+        return ledgerService.newCharge(studentId, Payment.PaymentType.ADMISSION, null,
+                orZero(feeStructure.getAdmissionFee()), null);
+    }
+
+    private Update feeSummaryOnInsert(Students student, FeeStructure feeStructure) {
+        double admissionFee = orZero(feeStructure.getAdmissionFee());
+        LocalDateTime now = LocalDateTime.now();
+
+        return new Update()
+                .setOnInsert("studentName", student.getFullName())
+                .setOnInsert("className", student.getClassName())
+                .setOnInsert("admissionFeeTotal", admissionFee)
+                .setOnInsert("admissionFeePaid", 0.0)
+                .setOnInsert("admissionFeePending", admissionFee)
+                .setOnInsert("admissionFeeCompleted", false)
+                .setOnInsert("totalFeesAmount", admissionFee)
+                .setOnInsert("totalPaidAmount", 0.0)
+                .setOnInsert("totalPendingAmount", admissionFee)
+                .setOnInsert("createdAt", now)
+                .setOnInsert("updatedAt", now)
+                .setOnInsert("version", 0L);
+    }
+
+    /**
+     * Add a monthly/annual entry and its amount to the totals, only if the entry does not exist yet
+     */
+    private boolean addFeeEntryIfMissing(String studentId, String path, Object detail, double total,
+                                         LocalDateTime dueDate) {
+        Query query = byStudentId(studentId).addCriteria(Criteria.where(path).exists(false));
+        Update update = new Update()
+                .set(path, detail)
+                .inc("totalFeesAmount", total)
+                .inc("totalPendingAmount", total)
+                .min("nextDueDate", dueDate)
+                .inc("version", 1);
+        return mongoTemplate.updateFirst(query, update, StudentFeeSummary.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * Record the payment in the ledger, add its fee entry at entryPath unless the
+     * summary has it (null for admission) and move the amount from pending to paid.
+     * If the summary does not take the payment, the ledger entry is reversed.
+     */
+    private AppliedPayment recordAndIncrementPaid(LedgerEntry entry, String entryPath,
+                                                  StudentFeeSummary.FeeDetail newDetail,
+                                                  String paidField, String pendingField, Double amount) {
+        ledgerService.record(entry);
+        try {
+            boolean entryAdded = entryPath != null && addFeeEntryIfMissing(entry.getStudentId(), entryPath,
+                    newDetail, newDetail.getTotal(), newDetail.getDueDate());
+            StudentFeeSummary feeSummary = incrementPaid(entry.getStudentId(), paidField, pendingField, amount);
+            return new AppliedPayment(entry, feeSummary, entryPath, entryAdded,
+                    newDetail != null ? newDetail.getTotal() : 0.0, paidField, pendingField, amount);
+        } catch (RuntimeException e) {
+            ledgerService.reversePayments(List.of(entry));
+            throw e;
+        }
+    }
+
+    /**
+     * Take a payment that was not saved back out of the fee summary, then reverse its
+     * ledger entry. If the summary cannot be restored the ledger entry stays, as the
+     * summary still counts the payment; a ledger rebuild cannot tell it was not saved.
+     */
+    private void undoPayment(AppliedPayment applied) {
+        String studentId = applied.getEntry().getStudentId();
+        double amount = applied.getAmount();
+        // Settling an overpaid entry to zero pending raised the fee total by the excess
+        double excess = applied.isClamped() ? -applied.getPending() : 0.0;
+        double pending = applied.getPending() + amount;
+
+        Update update = new Update()
+                .inc("totalPaidAmount", -amount)
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        if (applied.isEntryAdded()) {
+            // Remove the entry the payment created, with its amount
+            update.unset(applied.getEntryPath())
+                    .inc("totalFeesAmount", -excess - applied.getEntryTotal())
+                    .inc("totalPendingAmount", amount - excess - applied.getEntryTotal());
+        } else {
+            update.inc(applied.getPaidField(), -amount)
+                    .inc(applied.getPendingField(), amount - excess)
+                    .inc("totalFeesAmount", -excess)
+                    .inc("totalPendingAmount", amount - excess);
+            if (applied.getEntryPath() == null) {
+                update.set("admissionFeeCompleted", pending <= 0);
+            } else {
+                String status = pending <= 0 ? "PAID" : applied.getPaid() - amount > 0 ? "PARTIAL" : "PENDING";
+                update.set(applied.getEntryPath() + ".status", status);
+            }
+        }
+
+        try {
+            mongoTemplate.updateFirst(byStudentId(studentId), update, StudentFeeSummary.class);
+        } catch (RuntimeException e) {
+            AppLogger.error("Failed to take unsaved payment " + applied.getEntry().getPaymentId()
+                    + " back out of the fee summary of student " + studentId + ": " + e.getMessage());
+            return;
+        }
+        ledgerService.reversePayments(List.of(applied.getEntry()));
+    }
+
+    /**
+     * Atomically move an amount from pending to paid and return the new summary state
+     */
+    private StudentFeeSummary incrementPaid(String studentId, String paidField, String pendingField,
+                                            Double amount) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .inc(paidField, amount)
+                .inc(pendingField, -amount)
+                .inc("totalPaidAmount", amount)
+                .inc("totalPendingAmount", -amount)
+                .set("lastPaymentDate", now)
+                .set("updatedAt", now)
+                .inc("version", 1);
+
+        StudentFeeSummary feeSummary = mongoTemplate.findAndModify(
+                byStudentId(studentId),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                StudentFeeSummary.class
+        );
+        if (feeSummary == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Fee summary was removed while processing payment for student: " + studentId
+            );
+        }
+        return feeSummary;
+    }
+
+    /**
+     * Set an entry's status; a still unpaid entry lowers nextDueDate again, so the
+     * overdue job re-checks it even if it was flipped to OVERDUE meanwhile
+     */
+    private Update entryStatusUpdate(String path, String status, LocalDateTime dueDate) {
+        Update update = new Update().set(path + ".status", status);
+        if (!"PAID".equals(status) && dueDate != null) {
+            update.min("nextDueDate", dueDate);
+        }
+        return update;
+    }
+
+    /**
+     * Record the entry status and clamp an overpaid entry back to zero pending.
+     * Filtered on the amounts we observed: if another payment or a ledger rebuild
+     * has moved the entry on since, that write carries the newer state instead.
+     * Returns whether an overpaid entry was clamped.
+     */
+    private boolean settleFeeEntry(String studentId, String paidField, String pendingField,
+                                double paid, double pending, Update update) {
+        if (pending < 0) {
+            update.set(pendingField, 0.0)
+                    .inc("totalPendingAmount", -pending)
+                    .inc("totalFeesAmount", -pending);
+        }
+        update.inc("version", 1);
+
+        Query query = byStudentId(studentId).addCriteria(Criteria.where(paidField).is(paid)
+                .and(pendingField).is(pending));
+        long modified = mongoTemplate.updateFirst(query, update, StudentFeeSummary.class).getModifiedCount();
+        return pending < 0 && modified > 0;
+    }
+
+    private Query byStudentId(String studentId) {
+        return new Query(Criteria.where("studentId").is(studentId));
+    }
+
+    private double orZero(Double value) {
+        return value != null ? value : 0.0;
     }
 
     private Double getTotalAmountForPaymentType(FeeStructure feeStructure, Payment.PaymentType type) {
@@ -290,8 +1065,11 @@ public class PaymentService {
         };
     }
 
+    /**
+     * Payment ID, also printed as the receipt number
+     */
     private String generatePaymentId() {
-        return "PAY-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return "PAY-" + idGenerator.nextId();
     }
 
     private String getMonthName(int month) {
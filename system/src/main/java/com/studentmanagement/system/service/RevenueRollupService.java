@@ -0,0 +1,262 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.dto.RevenueRebuildReport;
+import com.studentmanagement.system.dto.RevenueReportResponse;
+import com.studentmanagement.system.model.Payment;
+import com.studentmanagement.system.model.RevenueRollup;
+import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains revenue_rollups: one document per day, class, payment type and
+ * payment method, incremented as payments are saved. Revenue reports group
+ * the rollups of a date range instead of summing payments, and a rebuild
+ * recomputes a range from the payments collection.
+ */
+@Service
+@RequiredArgsConstructor
+public class RevenueRollupService {
+
+    public static final List<String> GROUP_BY_DIMENSIONS =
+            List.of("day", "month", "className", "paymentType", "paymentMethod");
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Add one saved payment to its rollup
+     */
+    public void record(Payment payment) {
+        recordAll(List.of(payment));
+    }
+
+    /**
+     * Add saved payments to their rollups with one $inc upsert per rollup touched.
+     * Failures are logged rather than thrown: the payments are already saved and
+     * a rebuild of the affected days restores the rollups.
+     */
+    public void recordAll(Collection<Payment> payments) {
+        Map<String, RollupDelta> deltas = new LinkedHashMap<>();
+        for (Payment payment : payments) {
+            String day = payment.getPaymentDate().toLocalDate().toString();
+            String id = rollupId(day, payment.getClassName(), payment.getPaymentType(), payment.getPaymentMethod());
+            RollupDelta delta = deltas.computeIfAbsent(id, key -> new RollupDelta(day, payment));
+            delta.amount += payment.getAmountPaid() != null ? payment.getAmountPaid() : 0;
+            delta.count++;
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RevenueRollup.class);
+        for (Map.Entry<String, RollupDelta> entry : deltas.entrySet()) {
+            RollupDelta delta = entry.getValue();
+            Update update = new Update()
+                    .inc("amount", delta.amount)
+                    .inc("count", delta.count)
+                    .set("updatedAt", now)
+                    .setOnInsert("day", delta.day)
+                    .setOnInsert("month", delta.day.substring(0, 7))
+                    .setOnInsert("className", delta.className)
+                    .setOnInsert("paymentType", delta.paymentType)
+                    .setOnInsert("paymentMethod", delta.paymentMethod);
+            ops.upsert(Query.query(Criteria.where("_id").is(entry.getKey())), update);
+        }
+
+        try {
+            ops.execute();
+        } catch (RuntimeException e) {
+            AppLogger.error("Failed to update revenue rollups for " + payments.size()
+                    + " payments; rebuild the affected days: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Revenue between from and to (inclusive), grouped by the given dimensions
+     */
+    public RevenueReportResponse getRevenue(LocalDate from, LocalDate to, List<String> groupBy) {
+        Document groupId = new Document();
+        Document sort = new Document();
+        for (String dimension : groupBy) {
+            groupId.append(dimension, "$" + dimension);
+            sort.append("_id." + dimension, 1);
+        }
+
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", new Document("day",
+                new Document("$gte", from.toString()).append("$lte", to.toString()))));
+        pipeline.add(new Document("$group", new Document("_id", groupBy.isEmpty() ? null : groupId)
+                .append("amount", new Document("$sum", "$amount"))
+                .append("count", new Document("$sum", "$count"))));
+        if (!sort.isEmpty()) {
+            pipeline.add(new Document("$sort", sort));
+        }
+
+        List<RevenueReportResponse.Row> rows = new ArrayList<>();
+        double totalAmount = 0;
+        long totalCount = 0;
+        for (Document result : mongoTemplate.getCollection(mongoTemplate.getCollectionName(RevenueRollup.class))
+                .aggregate(pipeline)) {
+            Document group = result.get("_id") instanceof Document id ? id : new Document();
+            double amount = ((Number) result.get("amount")).doubleValue();
+            long count = ((Number) result.get("count")).longValue();
+            rows.add(RevenueReportResponse.Row.builder()
+                    .day(group.getString("day"))
+                    .month(group.getString("month"))
+                    .className(group.getString("className"))
+                    .paymentType(group.getString("paymentType"))
+                    .paymentMethod(group.getString("paymentMethod"))
+                    .amount(amount)
+                    .count(count)
+                    .build());
+            totalAmount += amount;
+            totalCount += count;
+        }
+
+        return RevenueReportResponse.builder()
+                .from(from)
+                .to(to)
+                .groupBy(groupBy)
+                .totalAmount(totalAmount)
+                .totalCount(totalCount)
+                .rows(rows)
+                .build();
+    }
+
+    /**
+     * Recompute the rollups of from..to (inclusive) from the payments collection with
+     * one aggregation that $merges into revenue_rollups. Payments saved while the
+     * rebuild runs may be counted twice or not at all, so rebuild closed days or a
+     * quiet period. Returns null when a rebuild is already running.
+     */
+    public RevenueRebuildReport rebuild(LocalDate from, LocalDate to) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return null;
+        }
+
+        RevenueRebuildReport report = new RevenueRebuildReport();
+        report.setFrom(from);
+        report.setTo(to);
+        report.setStartedAt(LocalDateTime.now());
+        try {
+            Query rollupsInRange = Query.query(Criteria.where("day").gte(from.toString()).lte(to.toString()));
+            report.setDeletedRollups(mongoTemplate.remove(rollupsInRange, RevenueRollup.class).getDeletedCount());
+
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(Payment.class))
+                    .aggregate(rebuildPipeline(from, to))
+                    .allowDiskUse(true)
+                    .toCollection();
+
+            report.setRollups(mongoTemplate.count(rollupsInRange, RevenueRollup.class));
+        } finally {
+            report.setFinishedAt(LocalDateTime.now());
+            rebuilding.set(false);
+        }
+
+        AppLogger.info("Revenue rollups rebuilt for " + from + ".." + to + ": "
+                + report.getDeletedRollups() + " replaced by " + report.getRollups());
+        return report;
+    }
+
+    private List<Document> rebuildPipeline(LocalDate from, LocalDate to) {
+        ZoneId zone = ZoneId.systemDefault();
+        Document paymentDateRange = new Document("$gte", Date.from(from.atStartOfDay(zone).toInstant()))
+                .append("$lt", Date.from(to.plusDays(1).atStartOfDay(zone).toInstant()));
+
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", new Document("paymentDate", paymentDateRange)));
+
+        // Payments saved before className was copied onto them take the student's class
+        Query withoutClass = Query.query(Criteria.where("paymentDate")
+                .gte(from.atStartOfDay()).lt(to.plusDays(1).atStartOfDay())
+                .and("className").exists(false));
+        if (mongoTemplate.exists(withoutClass, Payment.class)) {
+            pipeline.add(new Document("$lookup", new Document("from", mongoTemplate.getCollectionName(Students.class))
+                    .append("localField", "studentId")
+                    .append("foreignField", "studentId")
+                    .append("as", "student")));
+            pipeline.add(new Document("$addFields", new Document("className",
+                    new Document("$ifNull", List.of("$className",
+                            new Document("$arrayElemAt", List.of("$student.className", 0)))))));
+        }
+
+        // Same day boundaries and _id format as recordAll
+        pipeline.add(new Document("$group", new Document("_id", new Document("day",
+                new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                        .append("date", "$paymentDate")
+                        .append("timezone", zone.getId())))
+                .append("className", "$className")
+                .append("paymentType", "$paymentType")
+                .append("paymentMethod", "$paymentMethod"))
+                .append("amount", new Document("$sum", new Document("$ifNull", List.of("$amountPaid", 0))))
+                .append("count", new Document("$sum", 1L))));
+        pipeline.add(new Document("$project", new Document("_id", new Document("$concat", List.of(
+                "$_id.day", "|",
+                new Document("$ifNull", List.of("$_id.className", "")), "|",
+                new Document("$ifNull", List.of("$_id.paymentType", "")), "|",
+                new Document("$ifNull", List.of("$_id.paymentMethod", "")))))
+                .append("day", "$_id.day")
+                .append("month", new Document("$substrCP", List.of("$_id.day", 0, 7)))
+                .append("className", "$_id.className")
+                .append("paymentType", "$_id.paymentType")
+                .append("paymentMethod", "$_id.paymentMethod")
+                .append("amount", 1)
+                .append("count", 1)
+                .append("updatedAt", "$$NOW")));
+        pipeline.add(new Document("$merge", new Document("into", mongoTemplate.getCollectionName(RevenueRollup.class))
+                .append("on", "_id")
+                .append("whenMatched", "replace")
+                .append("whenNotMatched", "insert")));
+        return pipeline;
+    }
+
+    private static String rollupId(String day, String className,
+                                   Payment.PaymentType paymentType, Payment.PaymentMethod paymentMethod) {
+        return day + "|" + part(className) + "|" + part(paymentType) + "|" + part(paymentMethod);
+    }
+
+    private static String part(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    /**
+     * Payments of one rollup within a recordAll call
+     */
+    private static final class RollupDelta {
+
+        private final String day;
+        private final String className;
+        private final Payment.PaymentType paymentType;
+        private final Payment.PaymentMethod paymentMethod;
+        private double amount;
+        private long count;
+
+        RollupDelta(String day, Payment payment) {
+            this.day = day;
+            this.className = payment.getClassName();
+            this.paymentType = payment.getPaymentType();
+            this.paymentMethod = payment.getPaymentMethod();
+        }
+    }
+}
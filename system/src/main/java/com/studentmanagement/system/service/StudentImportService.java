@@ -0,0 +1,294 @@
+package com.studentmanagement.system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.studentmanagement.system.dto.CreateStudentRequest;
+import com.studentmanagement.system.dto.StudentImportResponse;
+import com.studentmanagement.system.mapper.StudentMapper;
+import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.model.Teacher;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.CsvReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk student import from CSV or NDJSON. The body is parsed one row at a time;
+ * valid rows are checked for existing students and unknown teachers with one
+ * $in query per chunk and written with unordered bulk inserts, so the cost per
+ * student is a fraction of a round trip instead of three.
+ */
+@Service
+@RequiredArgsConstructor
+public class StudentImportService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    // CSV header names map to CreateStudentRequest properties, case-insensitively
+    private static final Map<String, String> CSV_COLUMNS = csvColumns();
+
+    private final MongoTemplate mongoTemplate;
+    private final StudentService studentService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public enum Format { CSV, NDJSON }
+
+    /**
+     * Import every valid row of the body; invalid rows are reported and skipped
+     */
+    public StudentImportResponse importStudents(InputStream body, Format format) {
+        ImportRun run = new ImportRun();
+        long started = System.currentTimeMillis();
+
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            if (format == Format.CSV) {
+                readCsv(reader, run);
+            } else {
+                readNdjson(new BufferedReader(reader), run);
+            }
+            run.flush();
+        } catch (IOException e) {
+            AppLogger.error("Student import aborted after row " + run.rows + ": " + e.getMessage());
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Failed to read import after row " + run.rows + " (" + run.imported
+                            + " students already imported): " + e.getMessage()
+            );
+        }
+
+        AppLogger.info("Student import: " + run.imported + " imported, " + run.failed + " failed, in "
+                + (System.currentTimeMillis() - started) + " ms");
+        return run.toResponse();
+    }
+
+    private void readCsv(Reader reader, ImportRun run) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+        List<String> fields = header.stream()
+                .map(column -> CSV_COLUMNS.get(column.trim().toLowerCase(Locale.ROOT)))
+                .collect(Collectors.toList());
+
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            // Empty cells are absent values, so optional @Pattern fields stay valid
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < record.size() && i < fields.size(); i++) {
+                String value = record.get(i).trim();
+                if (fields.get(i) != null && !value.isEmpty()) {
+                    values.put(fields.get(i), value);
+                }
+            }
+            run.add(objectMapper.convertValue(values, CreateStudentRequest.class));
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, ImportRun run) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            CreateStudentRequest request;
+            try {
+                request = objectMapper.readValue(line, CreateStudentRequest.class);
+            } catch (JsonProcessingException e) {
+                run.rows++;
+                run.reject(run.rows, null, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            run.add(request);
+        }
+    }
+
+    private static Map<String, String> csvColumns() {
+        Map<String, String> columns = new HashMap<>();
+        for (Field field : CreateStudentRequest.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                columns.put(field.getName().toLowerCase(Locale.ROOT), field.getName());
+            }
+        }
+        return columns;
+    }
+
+    private record PendingRow(int row, CreateStudentRequest request) {
+    }
+
+    /**
+     * State of one import: the current chunk, IDs seen so far and the report
+     */
+    private class ImportRun {
+
+        private final List<PendingRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final Set<String> seenStudentIds = new HashSet<>();
+        private final Set<String> knownTeacherIds = new HashSet<>();
+        private final Set<String> missingTeacherIds = new HashSet<>();
+        private final List<StudentImportResponse.RowError> errors = new ArrayList<>();
+
+        private int rows;
+        private int imported;
+        private int failed;
+
+        void add(CreateStudentRequest request) {
+            int row = ++rows;
+
+            Set<ConstraintViolation<CreateStudentRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                reject(row, request.getStudentId(), message);
+                return;
+            }
+            if (!seenStudentIds.add(request.getStudentId())) {
+                reject(row, request.getStudentId(), "Duplicate student ID in import: " + request.getStudentId());
+                return;
+            }
+
+            chunk.add(new PendingRow(row, request));
+            if (chunk.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            Set<String> existingStudentIds = findExistingStudentIds();
+            resolveTeachers();
+
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Students.class);
+            List<PendingRow> accepted = new ArrayList<>(chunk.size());
+            for (PendingRow pending : chunk) {
+                CreateStudentRequest request = pending.request();
+                if (existingStudentIds.contains(request.getStudentId())) {
+                    reject(pending.row(), request.getStudentId(), "Student ID already exists: " + request.getStudentId());
+                } else if (request.getTeacherId() == null || !knownTeacherIds.contains(request.getTeacherId())) {
+                    reject(pending.row(), request.getStudentId(), "Teacher not found with ID: " + request.getTeacherId());
+                } else {
+                    ops.insert(StudentMapper.toEntity(request));
+                    accepted.add(pending);
+                }
+            }
+
+            if (!accepted.isEmpty()) {
+                try {
+                    ops.execute();
+                    imported += accepted.size();
+                } catch (BulkOperationException e) {
+                    // Unordered: every other row of the chunk was still written
+                    imported += e.getResult().getInsertedCount();
+                    for (BulkWriteError error : e.getErrors()) {
+                        PendingRow pending = accepted.get(error.getIndex());
+                        String studentId = pending.request().getStudentId();
+                        reject(pending.row(), studentId, error.getCode() == DUPLICATE_KEY_ERROR
+                                ? "Student ID already exists: " + studentId
+                                : "Failed to save student: " + error.getMessage());
+                    }
+                }
+                studentService.evictCached(accepted.stream()
+                        .map(pending -> pending.request().getStudentId())
+                        .collect(Collectors.toList()));
+            }
+            chunk.clear();
+        }
+
+        private Set<String> findExistingStudentIds() {
+            List<String> studentIds = chunk.stream()
+                    .map(pending -> pending.request().getStudentId())
+                    .collect(Collectors.toList());
+
+            Query query = Query.query(Criteria.where("studentId").in(studentIds));
+            query.fields().include("studentId");
+            return mongoTemplate.find(query, Students.class).stream()
+                    .map(Students::getStudentId)
+                    .collect(Collectors.toSet());
+        }
+
+        /**
+         * Look up only teacher IDs not seen in earlier chunks
+         */
+        private void resolveTeachers() {
+            Set<String> unresolved = chunk.stream()
+                    .map(pending -> pending.request().getTeacherId())
+                    .filter(teacherId -> teacherId != null
+                            && !knownTeacherIds.contains(teacherId)
+                            && !missingTeacherIds.contains(teacherId))
+                    .collect(Collectors.toSet());
+            if (unresolved.isEmpty()) {
+                return;
+            }
+
+            Query query = Query.query(Criteria.where("teacherId").in(unresolved));
+            query.fields().include("teacherId");
+            Set<String> found = mongoTemplate.find(query, Teacher.class).stream()
+                    .map(Teacher::getTeacherId)
+                    .collect(Collectors.toSet());
+
+            knownTeacherIds.addAll(found);
+            unresolved.removeAll(found);
+            missingTeacherIds.addAll(unresolved);
+        }
+
+        void reject(int row, String studentId, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(StudentImportResponse.RowError.builder()
+                        .row(row)
+                        .studentId(studentId)
+                        .error(error)
+                        .build());
+            }
+        }
+
+        StudentImportResponse toResponse() {
+            errors.sort(Comparator.comparingInt(StudentImportResponse.RowError::getRow));
+            return StudentImportResponse.builder()
+                    .totalRows(rows)
+                    .imported(imported)
+                    .failed(failed)
+                    .errorsTruncated(failed > errors.size())
+                    .errors(errors)
+                    .build();
+        }
+    }
+}
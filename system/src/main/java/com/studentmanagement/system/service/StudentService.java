@@ -1,25 +1,62 @@
 package com.studentmanagement.system.service;
 
+import com.studentmanagement.system.dto.StudentSummaryResponse;
 import com.studentmanagement.system.dto.UpdateStudentRequest;
 import com.studentmanagement.system.mapper.StudentMapper;
+import com.studentmanagement.system.model.StudentFeeSummary;
 import com.studentmanagement.system.model.Students;
 import com.studentmanagement.system.repository.StudentRepository;
 import com.studentmanagement.system.repository.TeacherRepository;
 import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.LruCache;
+import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class StudentService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_BATCH_SIZE = 500;
+
     private final StudentRepository studentRepository;
     private final TeacherRepository teacherRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${student.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${student.cache.ttl-seconds:600}")
+    private long cacheTtlSeconds;
 
+    // Students by studentId; the TTL bounds staleness from writes made on other nodes
+    private LruCache<String, Students> studentCache;
+
+    @PostConstruct
+    void initCache() {
+        studentCache = new LruCache<>(cacheMaxEntries, Duration.ofSeconds(cacheTtlSeconds));
+    }
 
     /**
      * Create a new student
@@ -49,6 +86,7 @@ public class StudentService {
 
 
         Students saved = studentRepository.save(student);
+        studentCache.remove(saved.getStudentId());
         AppLogger.info("Student created successfully: " + saved.getStudentId());
 
         return saved;
@@ -56,11 +94,40 @@ public class StudentService {
 
 
     /**
-     * Get all students
+     * Get one page of students ordered by _id, starting after the given cursor
      */
-    public List<Students> getAllStudents() {
-        AppLogger.info("Fetching all students");
-        return studentRepository.findAll();
+    public List<Students> getStudentsPage(String cursor, int size) {
+        AppLogger.info("Fetching students page after cursor: " + cursor);
+
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(size);
+
+        if (cursor != null && !cursor.isEmpty()) {
+            if (!ObjectId.isValid(cursor)) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST,
+                        "Invalid cursor: " + cursor
+                );
+            }
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(cursor)));
+        }
+
+        return mongoTemplate.find(query, Students.class);
+    }
+
+    /**
+     * Stream all students from a Mongo cursor, one document at a time
+     */
+    public void streamAllStudents(Consumer<Students> consumer) {
+        AppLogger.info("Streaming all students");
+
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id"));
+        query.cursorBatchSize(STREAM_BATCH_SIZE);
+
+        try (Stream<Students> students = mongoTemplate.stream(query, Students.class)) {
+            students.forEach(consumer);
+        }
     }
 
     /**
@@ -70,6 +137,22 @@ public class StudentService {
         AppLogger.info("Fetching students by class: " + className);
         return studentRepository.findByClassName(className);
     }
+    /**
+     * Get roster summaries by class name
+     */
+    public List<StudentSummaryResponse> getStudentSummariesByClass(String className) {
+        AppLogger.info("Fetching student summaries by class: " + className);
+        return studentRepository.findSummaryByClassName(className);
+    }
+
+    /**
+     * Get roster summaries of a specific teacher
+     */
+    public List<StudentSummaryResponse> getStudentSummariesByTeacher(String teacherId) {
+        AppLogger.info("Fetching student summaries for teacher: " + teacherId);
+        return studentRepository.findSummaryByTeacherId(teacherId);
+    }
+
     /**
      * Get all students of a specific teacher
      */
@@ -86,7 +169,12 @@ public class StudentService {
     public Students getStudentByStudentId(String studentId) {
         AppLogger.info("Fetching student with ID: " + studentId);
 
-        return studentRepository.findByStudentId(studentId)
+        Students cached = studentCache.get(studentId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Students student = studentRepository.findByStudentId(studentId)
                 .orElseThrow(() -> {
                     AppLogger.error("Student not found: " + studentId);
                     return new ResponseStatusException(
@@ -94,12 +182,80 @@ public class StudentService {
                             "Student not found with ID: " + studentId
                     );
                 });
+        studentCache.put(studentId, student);
+        return student;
+    }
+
+    /**
+     * Get students by student IDs, loading the ones not cached with a single $in query
+     */
+    public Map<String, Students> getStudentsByStudentIds(Collection<String> studentIds) {
+        Map<String, Students> students = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String studentId : studentIds) {
+            Students cached = studentCache.get(studentId);
+            if (cached != null) {
+                students.put(studentId, cached);
+            } else {
+                missing.add(studentId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Students student : studentRepository.findByStudentIdIn(missing)) {
+                students.put(student.getStudentId(), student);
+                studentCache.put(student.getStudentId(), student);
+            }
+        }
+        return students;
+    }
+
+    /**
+     * Get statistics of the studentId cache
+     */
+    public Map<String, Object> getCacheStats() {
+        return studentCache.stats();
+    }
+
+    /**
+     * Drop every cached student, after bulk changes made outside this service
+     */
+    public void clearCache() {
+        studentCache.clear();
+    }
+
+    /**
+     * Drop the given students from the cache, after writes made outside this service
+     */
+    public void evictCached(Collection<String> studentIds) {
+        studentIds.forEach(studentCache::remove);
+    }
+
+    /**
+     * Outcome of a student update: the student as updated and the image it pointed at before
+     */
+    @Data
+    @AllArgsConstructor
+    public static class StudentUpdate {
+        private Students updated;
+        private String previousImage;  // profileImageUrl the update replaced, null if none
     }
 
     /**
      * Update student by student ID using DTO
      */
     public Students updateStudent(String studentId, UpdateStudentRequest request) {
+        return updateStudentReturningPrevious(studentId, request).getUpdated();
+    }
+
+    /**
+     * Update student by student ID using DTO, returning the image the update replaced.
+     * Written with one findAndModify that returns the document as it was, so when
+     * uploads race on any node each replaced image is reported to exactly one caller.
+     * The image fields are only written when the request sets them.
+     */
+    public StudentUpdate updateStudentReturningPrevious(String studentId, UpdateStudentRequest request) {
         AppLogger.info("Updating student with ID: " + studentId);
 
         Students existingStudent = studentRepository.findByStudentId(studentId)
@@ -113,42 +269,69 @@ public class StudentService {
 
         StudentMapper.updateEntity(existingStudent, request);
 
-        Students updated = studentRepository.save(existingStudent);
-        AppLogger.info("Student updated successfully: " + updated.getStudentId());
+        Document fields = new Document();
+        mongoTemplate.getConverter().write(existingStudent, fields);
+        List<String> excluded = new ArrayList<>(List.of("_id", "_class"));
+        if (request.getProfileImageUrl() == null) {
+            excluded.addAll(List.of("profileImageUrl", "profileImageContentType"));
+        }
+        Students previous = mongoTemplate.findAndModify(
+                new Query(Criteria.where("studentId").is(studentId)),
+                Update.fromDocument(fields, excluded.toArray(new String[0])),
+                FindAndModifyOptions.options().returnNew(false),
+                Students.class);
+        studentCache.remove(studentId);
+        if (previous == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND,
+                    "Cannot update. Student was deleted: " + studentId
+            );
+        }
+        if (request.getProfileImageUrl() == null) {
+            existingStudent.setProfileImageUrl(previous.getProfileImageUrl());
+            existingStudent.setProfileImageContentType(previous.getProfileImageContentType());
+        }
+        AppLogger.info("Student updated successfully: " + existingStudent.getStudentId());
 
-        return updated;
+        return new StudentUpdate(existingStudent, previous.getProfileImageUrl());
     }
 
     /**
-     * Delete student by student ID
+     * Delete student by student ID, returning the student as removed
+     * The document comes from the findAndRemove itself, never from the cache, so
+     * callers release the image the deleted student actually referred to.
      */
-    public boolean deleteStudent(String studentId) {
+    public Students deleteStudent(String studentId) {
         AppLogger.info("Attempting to delete student with ID: " + studentId);
 
-        Students student = studentRepository.findByStudentId(studentId)
-                .orElseThrow(() -> {
-                    AppLogger.error("Cannot delete â€” student not found: " + studentId);
-                    return new ResponseStatusException(
-                            HttpStatus.NOT_FOUND,
-                            "Cannot delete. Student not found: " + studentId
-                    );
-                });
-
-        studentRepository.delete(student);
+        Students removed = mongoTemplate.findAndRemove(
+                new Query(Criteria.where("studentId").is(studentId)), Students.class);
+        studentCache.remove(studentId);
+        if (removed == null) {
+            AppLogger.error("Cannot delete â€” student not found: " + studentId);
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND,
+                    "Cannot delete. Student not found: " + studentId
+            );
+        }
         AppLogger.info("Student deleted successfully: " + studentId);
 
-        return true;
+        return removed;
     }
 
     /**
      * Bulk update class for all students in a given class
+     * Runs as a single server-side updateMany per collection
      */
     public int bulkUpdateClass(String fromClass, String toClass) {
         AppLogger.info("Bulk update: Moving students from " + fromClass + " to " + toClass);
 
-        List<Students> students = studentRepository.findByClassName(fromClass);
+        Query query = new Query(Criteria.where("className").is(fromClass));
+        Update update = new Update().set("className", toClass);
+
+        UpdateResult result = mongoTemplate.updateMulti(query, update, Students.class);
 
-        if (students.isEmpty()) {
+        if (result.getMatchedCount() == 0) {
             AppLogger.warn("No students found in class: " + fromClass);
             throw new ResponseStatusException(
                     HttpStatus.NOT_FOUND,
@@ -156,14 +339,14 @@ public class StudentService {
             );
         }
 
-        students.forEach(student -> {
-            student.setClassName(toClass);
-        });
+        studentCache.removeIf(student -> fromClass.equals(student.getClassName()));
 
-        studentRepository.saveAll(students);
+        // Keep the denormalized class name on fee summaries in sync
+        UpdateResult summaryResult = mongoTemplate.updateMulti(query, update, StudentFeeSummary.class);
 
-        AppLogger.info("Bulk update successful. Students moved: " + students.size());
-        return students.size();
+        AppLogger.info("Bulk update successful. Students moved: " + result.getModifiedCount()
+                + ", fee summaries updated: " + summaryResult.getModifiedCount());
+        return (int) result.getModifiedCount();
     }
 
 
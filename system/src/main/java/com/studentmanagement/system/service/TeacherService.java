@@ -1,5 +1,6 @@
 package com.studentmanagement.system.service;
 
+import com.studentmanagement.system.dto.TeacherSummaryResponse;
 import com.studentmanagement.system.dto.UpdateTeacherRequest;
 import com.studentmanagement.system.model.Teacher;
 import com.studentmanagement.system.repository.TeacherRepository;
@@ -45,6 +46,14 @@ public class TeacherService {
         return teacherRepository.findAll();
     }
 
+    /**
+     * Get summaries of all teachers
+     */
+    public List<TeacherSummaryResponse> getTeacherSummaries() {
+        AppLogger.info("Fetching teacher summaries");
+        return teacherRepository.findAllProjectedBy();
+    }
+
     /**
      * Get teacher by teacherId
      */
@@ -0,0 +1,149 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.storage.BlobStore;
+import com.studentmanagement.system.util.AppLogger;
+import com.studentmanagement.system.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates downscaled copies of uploaded profile images in the background.
+ * PNG and GIF originals get thumbnails in their own format, all others JPEG.
+ * Sources being processed, and for a while those that failed, are not queued again.
+ */
+@Service
+@RequiredArgsConstructor
+public class ThumbnailService {
+
+    /**
+     * Longest-side sizes generated for every upload, in pixels
+     */
+    public static final List<Integer> THUMBNAIL_SIZES = List.of(64, 256);
+
+    private static final int MAX_FAILED_ENTRIES = 10000;
+
+    private final BlobStore blobStore;
+
+    @Value("${file.thumbnails.retry-failed-minutes:60}")
+    private long retryFailedMinutes;
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    // Sources that could not be thumbnailed, e.g. WebP, which ImageIO cannot decode
+    private LruCache<String, Boolean> failed;
+
+    @PostConstruct
+    void initFailedCache() {
+        failed = new LruCache<>(MAX_FAILED_ENTRIES, Duration.ofMinutes(retryFailedMinutes));
+    }
+
+    /**
+     * Claim a source before calling generateThumbnails. Returns false while its
+     * thumbnails are already being generated, or recently failed.
+     */
+    public boolean claim(String sourceKey) {
+        return failed.get(sourceKey) == null && inProgress.add(sourceKey);
+    }
+
+    /**
+     * Write one thumbnail per target size; existing thumbnails are replaced.
+     * Releases the claim on the source when done.
+     */
+    @Async
+    public void generateThumbnails(String sourceKey, Map<Integer, String> targets) {
+        try {
+            BufferedImage image;
+            try (InputStream in = blobStore.open(sourceKey, 0)) {
+                image = ImageIO.read(in);
+            }
+            if (image == null) {
+                AppLogger.warn("Cannot create thumbnails, unsupported image: " + sourceKey);
+                failed.put(sourceKey, Boolean.TRUE);
+                return;
+            }
+
+            String format = imageFormat(sourceKey);
+            for (Map.Entry<Integer, String> target : targets.entrySet()) {
+                BufferedImage thumbnail = scale(image, target.getKey(), "jpg".equals(format));
+                store(thumbnail, format, target.getValue());
+            }
+
+            AppLogger.info("Thumbnails created for: " + sourceKey);
+        } catch (IOException ex) {
+            AppLogger.error("Failed to create thumbnails for " + sourceKey + ": " + ex.getMessage());
+            failed.put(sourceKey, Boolean.TRUE);
+        } finally {
+            inProgress.remove(sourceKey);
+        }
+    }
+
+    /**
+     * Content type of the thumbnails of the given original, whatever format the original has
+     */
+    public static String contentType(String filename) {
+        String format = imageFormat(filename);
+        return "jpg".equals(format) ? "image/jpeg" : "image/" + format;
+    }
+
+    /**
+     * Fit the image into a size x size box, keeping the aspect ratio and never upscaling
+     */
+    private BufferedImage scale(BufferedImage image, int size, boolean opaque) {
+        double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        // The JPEG writer cannot encode an alpha channel
+        BufferedImage scaled = new BufferedImage(width, height,
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Write to a staging file first so readers never see a half-written thumbnail
+     */
+    private void store(BufferedImage image, String format, String key) throws IOException {
+        Path staging = blobStore.createStagingFile();
+        try {
+            ImageIO.write(image, format, staging.toFile());
+            blobStore.put(key, staging, "jpg".equals(format) ? "image/jpeg" : "image/" + format);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    private static String imageFormat(String filename) {
+        String lower = filename.toLowerCase();
+        if (lower.endsWith(".png")) {
+            return "png";
+        } else if (lower.endsWith(".gif")) {
+            return "gif";
+        }
+        return "jpg";
+    }
+}
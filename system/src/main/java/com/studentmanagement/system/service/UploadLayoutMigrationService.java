@@ -0,0 +1,127 @@
+package com.studentmanagement.system.service;
+
+import com.studentmanagement.system.dto.UploadMigrationReport;
+import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.storage.BlobStore;
+import com.studentmanagement.system.util.AppLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * One-time move of flat upload names into the ab/cd/<name> layout.
+ * Files are moved before the students pointing at them are rewritten, and
+ * FileStorageService resolves flat names in both layouts, so images keep
+ * being served while the migration runs. Safe to run again after a failure.
+ */
+@Service
+@RequiredArgsConstructor
+public class UploadLayoutMigrationService {
+
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final BlobStore blobStore;
+    private final FileStorageService fileStorageService;
+    private final StudentService studentService;
+    private final MongoTemplate mongoTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Run the migration; returns null when it is already running
+     */
+    public UploadMigrationReport migrate() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+
+        UploadMigrationReport report = new UploadMigrationReport();
+        report.setStartedAt(LocalDateTime.now());
+        try {
+            migrateStudents(report);
+            relocateUnreferencedFiles(report);
+        } catch (IOException | RuntimeException e) {
+            AppLogger.error("Upload layout migration failed: " + e.getMessage());
+            report.setError(e.getMessage());
+        } finally {
+            // Cached students still carry the flat names
+            studentService.clearCache();
+            report.setFinishedAt(LocalDateTime.now());
+            running.set(false);
+        }
+
+        AppLogger.info("Upload layout migration: " + report.getUpdatedStudents() + " students updated, "
+                + report.getRelocatedFiles() + " files relocated, " + report.getMissingFiles() + " missing");
+        return report;
+    }
+
+    private void migrateStudents(UploadMigrationReport report) {
+        Query query = Query.query(Criteria.where("profileImageUrl").regex("^[^/]+$"));
+        query.fields().include("studentId").include("profileImageUrl");
+        query.cursorBatchSize(STREAM_BATCH_SIZE);
+
+        try (Stream<Students> students = mongoTemplate.stream(query, Students.class)) {
+            students.forEach(student -> {
+                report.setScannedStudents(report.getScannedStudents() + 1);
+                try {
+                    migrateName(student.getProfileImageUrl(), report);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Move the file, then point every student holding the flat name at the sharded one.
+     * Students sharing a content-addressed file are handled by the first of them.
+     */
+    private void migrateName(String flatName, UploadMigrationReport report) throws IOException {
+        boolean flatPresent = blobStore.exists(flatName);
+        if (!fileStorageService.relocateToShardedLayout(flatName)) {
+            report.setMissingFiles(report.getMissingFiles() + 1);
+            return;
+        }
+        if (flatPresent) {
+            report.setRelocatedFiles(report.getRelocatedFiles() + 1);
+        }
+
+        long updated = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("profileImageUrl").is(flatName)),
+                new Update().set("profileImageUrl", fileStorageService.shardedName(flatName)),
+                Students.class
+        ).getModifiedCount();
+        report.setUpdatedStudents(report.getUpdatedStudents() + updated);
+    }
+
+    /**
+     * Remaining flat files belong to no student; move them too so the sweeper sees one layout
+     */
+    private void relocateUnreferencedFiles(UploadMigrationReport report) throws IOException {
+        // Collected first: moving blobs while listing would revisit them under their new keys
+        List<String> flatNames = new ArrayList<>();
+        blobStore.list("", blob -> {
+            String key = blob.key();
+            if (!fileStorageService.isSharded(key) && !fileStorageService.isTempFile(key)) {
+                flatNames.add(key);
+            }
+            return true;
+        });
+        for (String name : flatNames) {
+            if (fileStorageService.relocateToShardedLayout(name)) {
+                report.setRelocatedFiles(report.getRelocatedFiles() + 1);
+            }
+        }
+    }
+}
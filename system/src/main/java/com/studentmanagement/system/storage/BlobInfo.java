@@ -0,0 +1,9 @@
+package com.studentmanagement.system.storage;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a stored blob. contentType is null when the backend does not keep it.
+ */
+public record BlobInfo(String key, long size, Instant lastModified, String contentType) {
+}
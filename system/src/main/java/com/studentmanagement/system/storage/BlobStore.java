@@ -0,0 +1,77 @@
+package com.studentmanagement.system.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Storage for uploaded files, addressed by slash-separated keys such as
+ * "ab/cd/<sha256>.jpg" or "thumbnails/64/ab/cd/<sha256>.jpg".
+ * The implementation is selected with storage.backend: filesystem (default), gridfs or s3.
+ */
+public interface BlobStore {
+
+    String STAGING_PREFIX = "upload-";
+    String STAGING_SUFFIX = ".tmp";
+
+    /**
+     * Create a local file to write an upload to before it is stored.
+     * The filesystem store places it next to the blobs so put is a rename.
+     */
+    Path createStagingFile() throws IOException;
+
+    /**
+     * Store the staging file under the key, replacing any existing blob.
+     * The staging file is consumed.
+     */
+    void put(String key, Path stagingFile, String contentType) throws IOException;
+
+    Optional<BlobInfo> stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    /**
+     * Open the blob for reading from the given byte offset
+     */
+    InputStream open(String key, long offset) throws IOException;
+
+    /**
+     * Local file holding the blob, when the backend has one; lets callers use sendfile
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Move a blob to a new key. Backends without a rename copy through a staging file.
+     */
+    default void move(String fromKey, String toKey) throws IOException {
+        Optional<BlobInfo> source = stat(fromKey);
+        if (source.isEmpty()) {
+            return;
+        }
+        Path staging = createStagingFile();
+        try {
+            try (InputStream in = open(fromKey, 0)) {
+                Files.copy(in, staging, StandardCopyOption.REPLACE_EXISTING);
+            }
+            put(toKey, staging, source.get().contentType());
+            delete(fromKey);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    /**
+     * Visit every blob whose key starts with the prefix, without loading the
+     * whole listing. Returns false when the visitor stopped the listing.
+     */
+    boolean list(String prefix, BlobVisitor visitor) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.studentmanagement.system.storage;
+
+import java.io.IOException;
+
+/**
+ * Callback for {@link BlobStore#list}; returning false stops the listing.
+ */
+@FunctionalInterface
+public interface BlobVisitor {
+    boolean visit(BlobInfo blob) throws IOException;
+}
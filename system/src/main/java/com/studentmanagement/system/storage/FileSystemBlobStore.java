@@ -0,0 +1,139 @@
+package com.studentmanagement.system.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Blobs as files under file.upload-dir; keys are paths relative to it.
+ * Suitable for a single node or a shared volume.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public FileSystemBlobStore(@Value("${file.upload-dir:uploads/students}") String uploadDir) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        // Same file system as the blobs, so put can rename atomically
+        Files.createDirectories(root);
+        return Files.createTempFile(root, STAGING_PREFIX, STAGING_SUFFIX);
+    }
+
+    @Override
+    public void put(String key, Path stagingFile, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.move(stagingFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public Optional<BlobInfo> stat(String key) throws IOException {
+        Path path = resolve(key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new BlobInfo(key, attributes.size(), attributes.lastModifiedTime().toInstant(), null));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(resolve(key));
+        channel.position(offset);
+        return Channels.newInputStream(channel);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public void move(String fromKey, String toKey) throws IOException {
+        Path source = resolve(fromKey);
+        if (!Files.exists(source)) {
+            return;
+        }
+        Path target = resolve(toKey);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean list(String prefix, BlobVisitor visitor) throws IOException {
+        // Prefixes name directories ("" or ending in "/"), matching how the store lays out keys
+        Path directory = prefix.isEmpty() ? root : resolve(prefix);
+        if (!Files.isDirectory(directory)) {
+            return true;
+        }
+        return walk(directory, visitor);
+    }
+
+    /**
+     * Depth-first walk with one open directory listing per level
+     */
+    private boolean walk(Path directory, BlobVisitor visitor) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    if (!walk(entry, visitor)) {
+                        return false;
+                    }
+                } else if (attributes.isRegularFile()) {
+                    BlobInfo blob = new BlobInfo(keyOf(entry), attributes.size(),
+                            attributes.lastModifiedTime().toInstant(), null);
+                    if (!visitor.visit(blob)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return path;
+    }
+
+    private String keyOf(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,104 @@
+package com.studentmanagement.system.storage;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+/**
+ * Blobs in GridFS on the application's MongoDB connection, with the key as the
+ * GridFS filename. Every node sees the same files without a shared disk.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "gridfs")
+@RequiredArgsConstructor
+public class GridFsBlobStore implements BlobStore {
+
+    private static final String CONTENT_TYPE_KEY = "_contentType";  // Where GridFsTemplate keeps it
+
+    private final GridFsTemplate gridFsTemplate;
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        return Files.createTempFile(STAGING_PREFIX, STAGING_SUFFIX);
+    }
+
+    @Override
+    public void put(String key, Path stagingFile, String contentType) throws IOException {
+        ObjectId id;
+        try (InputStream in = Files.newInputStream(stagingFile)) {
+            id = gridFsTemplate.store(in, key, contentType);
+        }
+        // Readers pick the newest revision, so older ones go only once this one is complete
+        gridFsTemplate.delete(Query.query(whereFilename().is(key).and("_id").ne(id)));
+        Files.deleteIfExists(stagingFile);
+    }
+
+    @Override
+    public Optional<BlobInfo> stat(String key) {
+        return latest(key).map(this::toBlobInfo);
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        GridFSFile file = latest(key).orElseThrow(() -> new NoSuchFileException(key));
+        InputStream in = gridFsTemplate.getResource(file).getInputStream();
+        // The download stream skips whole chunks without reading them
+        in.skipNBytes(offset);
+        return in;
+    }
+
+    @Override
+    public void delete(String key) {
+        gridFsTemplate.delete(Query.query(whereFilename().is(key)));
+    }
+
+    @Override
+    public boolean list(String prefix, BlobVisitor visitor) throws IOException {
+        // Anchored prefix regex, served by the driver's filename index
+        Query query = Query.query(whereFilename().regex("^" + escapeRegex(prefix)));
+        for (GridFSFile file : gridFsTemplate.find(query)) {
+            if (!visitor.visit(toBlobInfo(file))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Optional<GridFSFile> latest(String key) {
+        Query query = Query.query(whereFilename().is(key)).with(Sort.by(Sort.Direction.DESC, "uploadDate"));
+        return Optional.ofNullable(gridFsTemplate.find(query).first());
+    }
+
+    private BlobInfo toBlobInfo(GridFSFile file) {
+        Document metadata = file.getMetadata();
+        String contentType = metadata != null ? metadata.getString(CONTENT_TYPE_KEY) : null;
+        return new BlobInfo(file.getFilename(), file.getLength(), file.getUploadDate().toInstant(), contentType);
+    }
+
+    private static String escapeRegex(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,213 @@
+package com.studentmanagement.system.storage;
+
+import com.studentmanagement.system.util.AppLogger;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Blobs in an S3-compatible bucket. Set storage.s3.endpoint and
+ * storage.s3.path-style-access=true to run against a local MinIO container.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+public class S3BlobStore implements BlobStore, DisposableBean {
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String keyPrefix;
+    private final boolean createBucket;
+
+    public S3BlobStore(@Value("${storage.s3.bucket}") String bucket,
+                       @Value("${storage.s3.region:us-east-1}") String region,
+                       @Value("${storage.s3.endpoint:}") String endpoint,
+                       @Value("${storage.s3.path-style-access:false}") boolean pathStyleAccess,
+                       @Value("${storage.s3.access-key:}") String accessKey,
+                       @Value("${storage.s3.secret-key:}") String secretKey,
+                       @Value("${storage.s3.key-prefix:}") String keyPrefix,
+                       @Value("${storage.s3.create-bucket:false}") boolean createBucket) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyleAccess);
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        // Without explicit keys the default AWS credential chain applies
+        if (!accessKey.isEmpty()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix;
+        this.createBucket = createBucket;
+    }
+
+    @PostConstruct
+    void checkBucket() {
+        try {
+            s3.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+        } catch (NoSuchBucketException e) {
+            if (!createBucket) {
+                throw e;
+            }
+            s3.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+            AppLogger.info("Created S3 bucket: " + bucket);
+        }
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        return Files.createTempFile(STAGING_PREFIX, STAGING_SUFFIX);
+    }
+
+    @Override
+    public void put(String key, Path stagingFile, String contentType) throws IOException {
+        try {
+            s3.putObject(PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(objectKey(key))
+                            .contentType(contentType)
+                            .build(),
+                    RequestBody.fromFile(stagingFile));
+        } catch (SdkException e) {
+            throw storageError("store", key, e);
+        }
+        Files.deleteIfExists(stagingFile);
+    }
+
+    @Override
+    public Optional<BlobInfo> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey(key))
+                    .build());
+            return Optional.of(new BlobInfo(key, head.contentLength(), head.lastModified(), head.contentType()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            // HEAD responses carry no error body, so a missing key may surface as a bare 404
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw storageError("stat", key, e);
+        } catch (SdkException e) {
+            throw storageError("stat", key, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey(key))
+                    .range(offset > 0 ? "bytes=" + offset + "-" : null)
+                    .build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw storageError("read", key, e);
+        } catch (SdkException e) {
+            throw storageError("read", key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (SdkException e) {
+            throw storageError("delete", key, e);
+        }
+    }
+
+    @Override
+    public void move(String fromKey, String toKey) throws IOException {
+        try {
+            // Server-side copy; the bytes never pass through this node
+            s3.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucket)
+                    .sourceKey(objectKey(fromKey))
+                    .destinationBucket(bucket)
+                    .destinationKey(objectKey(toKey))
+                    .build());
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(fromKey)).build());
+        } catch (NoSuchKeyException e) {
+            // Nothing to move
+        } catch (S3Exception e) {
+            // Not every S3-compatible store maps a missing copy source to NoSuchKey
+            if (e.statusCode() != 404) {
+                throw storageError("move", fromKey, e);
+            }
+        } catch (SdkException e) {
+            throw storageError("move", fromKey, e);
+        }
+    }
+
+    @Override
+    public boolean list(String prefix, BlobVisitor visitor) throws IOException {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .prefix(objectKey(prefix))
+                .build();
+        try {
+            // The paginator fetches one page of up to 1000 keys at a time
+            for (S3Object object : s3.listObjectsV2Paginator(request).contents()) {
+                String key = object.key().substring(keyPrefix.length());
+                if (!visitor.visit(new BlobInfo(key, object.size(), object.lastModified(), null))) {
+                    return false;
+                }
+            }
+        } catch (SdkException e) {
+            throw storageError("list", prefix, e);
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        s3.close();
+    }
+
+    private String objectKey(String key) {
+        return keyPrefix + key;
+    }
+
+    private IOException storageError(String action, String key, SdkException e) {
+        return new IOException("Failed to " + action + " S3 object " + key + ": " + e.getMessage(), e);
+    }
+}
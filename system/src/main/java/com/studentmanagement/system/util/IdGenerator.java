@@ -0,0 +1,13 @@
+package com.studentmanagement.system.util;
+
+/**
+ * Source of unique IDs for business keys such as payment IDs.
+ * Implementations must be thread-safe.
+ */
+public interface IdGenerator {
+
+    /**
+     * Next ID, using only characters safe in URLs and file names
+     */
+    String nextId();
+}
@@ -0,0 +1,88 @@
+package com.studentmanagement.system.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered 64-bit IDs: 41 bits of milliseconds since 2024-01-01, a 12-bit
+ * sequence within the millisecond and a 10-bit node ID. IDs are strictly
+ * increasing per node without locks, and unique across nodes as long as every
+ * node has its own node ID. As strings they are 13 Crockford base32 characters
+ * whose lexical order is their numeric order, so unique indexes on them grow
+ * at the right edge like an ObjectId index.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;  // 2024-01-01T00:00:00Z
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final char[] CROCKFORD_BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;  // ceil(64 / 5)
+
+    private final long nodeId;
+    private final LongSupplier clock;
+
+    // Milliseconds since EPOCH_MILLIS shifted left by SEQUENCE_BITS, plus the sequence, of the last ID
+    private final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * Next ID as a positive long
+     */
+    public long nextLong() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        // A new millisecond restarts the sequence. When the 4096 IDs of a millisecond are
+        // used up, or the clock steps back, the next ID borrows from the following
+        // millisecond instead of waiting, so IDs never repeat or go backwards.
+        long timeAndSequence = lastTimeAndSequence.updateAndGet(last -> Math.max(now, last + 1));
+        return (timeAndSequence << NODE_BITS) | nodeId;
+    }
+
+    @Override
+    public String nextId() {
+        return encode(nextLong());
+    }
+
+    /**
+     * Fixed-width Crockford base32, most significant digit first
+     */
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        long value = id;
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = CROCKFORD_BASE32[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Node ID derived from host name and process ID. Two nodes can land on the
+     * same value, so it only seeds the search for a free leased node ID.
+     */
+    public static int defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+        }
+        return (host + ":" + ProcessHandle.current().pid()).hashCode() & MAX_NODE_ID;
+    }
+}
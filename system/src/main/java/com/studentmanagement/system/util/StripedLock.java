@@ -0,0 +1,55 @@
+package com.studentmanagement.system.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks selected by key hash, so work on the same key is
+ * serialized while unrelated keys almost never contend.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock(int stripes) {
+        // Round up to a power of two so the stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(stripes, 2) - 1) << 1;
+        this.locks = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the lock guarding the given key
+     */
+    public Lock get(String key) {
+        return locks[stripe(key)];
+    }
+
+    /**
+     * Get the distinct locks guarding the given keys, in a fixed stripe order
+     * so that callers locking several keys cannot deadlock each other
+     */
+    public List<Lock> getAll(Collection<String> keys) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String key : keys) {
+            stripes.add(stripe(key));
+        }
+        return stripes.stream()
+                .map(stripe -> (Lock) locks[stripe])
+                .collect(Collectors.toList());
+    }
+
+    private int stripe(String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & mask;
+    }
+}
@@ -0,0 +1,15 @@
+package com.studentmanagement.system.util;
+
+import java.util.UUID;
+
+/**
+ * Random 122-bit IDs as 32 upper-case hex characters. Collision-safe without
+ * node coordination, but unordered, so index inserts land on random pages.
+ */
+public class UuidIdGenerator implements IdGenerator {
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString().replace("-", "").toUpperCase();
+    }
+}
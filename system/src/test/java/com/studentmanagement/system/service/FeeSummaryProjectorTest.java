@@ -0,0 +1,405 @@
+package com.studentmanagement.system.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.studentmanagement.system.dto.CreatePaymentRequest;
+import com.studentmanagement.system.model.FeeStructure;
+import com.studentmanagement.system.model.FeeSummarySnapshot;
+import com.studentmanagement.system.model.LedgerEntry;
+import com.studentmanagement.system.model.Payment;
+import com.studentmanagement.system.model.StudentFeeSummary;
+import com.studentmanagement.system.model.Students;
+import com.studentmanagement.system.repository.PaymentRepository;
+import com.studentmanagement.system.repository.StudentFeeSummaryRepository;
+import com.studentmanagement.system.util.SnowflakeIdGenerator;
+import com.studentmanagement.system.util.UuidIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FeeSummaryProjectorTest {
+
+    private static final String STUDENT = "S1";
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 10, 12, 0);
+
+    private int sequence;
+
+    @Test
+    void overpaymentClampsPendingAndRaisesFeeTotalByTheExcess() {
+        FeeSummaryProjector projector = replay(
+                admissionCharge(1000),
+                monthCharge(4, 2026, 200),
+                monthPayment("P1", 4, 2026, 250, null));
+
+        StudentFeeSummary summary = projector.finish(NOW);
+        StudentFeeSummary.MonthlyFeeDetail april = summary.getMonthlyFees().get("04-2026");
+        assertThat(april.getTotal()).isEqualTo(200.0);
+        assertThat(april.getPaid()).isEqualTo(250.0);
+        assertThat(april.getPending()).isEqualTo(0.0);
+        assertThat(april.getStatus()).isEqualTo("PAID");
+        assertThat(summary.getTotalPaidAmount()).isEqualTo(250.0);
+        assertThat(summary.getTotalPendingAmount()).isEqualTo(1000.0);
+        assertThat(summary.getTotalFeesAmount()).isEqualTo(1250.0);
+    }
+
+    @Test
+    void chargeArrivingMoreThanOnceIsCountedOnce() {
+        FeeSummaryProjector projector = replay(
+                admissionCharge(1000),
+                monthCharge(4, 2026, 200),
+                admissionCharge(500),
+                monthCharge(4, 2026, 300),
+                // A first payment carries its fee too; the month is already charged
+                monthPayment("P1", 4, 2026, 50, 200.0));
+
+        StudentFeeSummary summary = projector.finish(NOW);
+        assertThat(summary.getAdmissionFeeTotal()).isEqualTo(1000.0);
+        assertThat(summary.getMonthlyFees().get("04-2026").getTotal()).isEqualTo(200.0);
+        assertThat(summary.getMonthlyFees().get("04-2026").getPending()).isEqualTo(150.0);
+        assertThat(summary.getTotalFeesAmount()).isEqualTo(1200.0);
+        assertThat(summary.getTotalPendingAmount()).isEqualTo(1150.0);
+    }
+
+    @Test
+    void paymentCarryingItsFeeChargesTheEntry() {
+        FeeSummaryProjector projector = replay(
+                admissionCharge(1000),
+                monthPayment("P1", 6, 2026, 80, 200.0));
+
+        StudentFeeSummary.MonthlyFeeDetail june = projector.finish(NOW).getMonthlyFees().get("06-2026");
+        assertThat(june.getTotal()).isEqualTo(200.0);
+        assertThat(june.getPaid()).isEqualTo(80.0);
+        assertThat(june.getPending()).isEqualTo(120.0);
+        assertThat(june.getDueDate()).isEqualTo(LocalDateTime.of(2026, 6, 5, 0, 0));
+    }
+
+    @Test
+    void adjustmentsChangeEntryAndSummaryTotals() {
+        FeeSummaryProjector projector = replay(
+                admissionCharge(1000),
+                monthCharge(4, 2026, 200),
+                adjustment(Payment.PaymentType.MONTHLY, "04-2026", -50),
+                adjustment(Payment.PaymentType.ADMISSION, null, -1000));
+
+        StudentFeeSummary summary = projector.finish(NOW);
+        assertThat(summary.getMonthlyFees().get("04-2026").getTotal()).isEqualTo(150.0);
+        assertThat(summary.getMonthlyFees().get("04-2026").getPending()).isEqualTo(150.0);
+        assertThat(summary.getAdmissionFeeTotal()).isEqualTo(0.0);
+        assertThat(summary.getAdmissionFeeCompleted()).isTrue();
+        assertThat(summary.getTotalFeesAmount()).isEqualTo(150.0);
+        assertThat(summary.getTotalPendingAmount()).isEqualTo(150.0);
+    }
+
+    @Test
+    void entriesForUnchargedFeesAreOrphansAndChangeNothing() {
+        FeeSummaryProjector projector = replay(admissionCharge(1000));
+
+        assertThat(projector.apply(monthPayment("P1", 4, 2026, 50, null))).isFalse();
+        assertThat(projector.apply(adjustment(Payment.PaymentType.ANNUAL, "2026", -10))).isFalse();
+
+        StudentFeeSummary summary = projector.finish(NOW);
+        assertThat(summary.getMonthlyFees()).isEmpty();
+        assertThat(summary.getTotalPaidAmount()).isNull();
+        assertThat(summary.getTotalFeesAmount()).isEqualTo(1000.0);
+    }
+
+    @Test
+    void reversedPaymentsLeaveNoTrace() {
+        LedgerEntry payment = monthPayment("P1", 6, 2026, 80, 200.0);
+        List<LedgerEntry> entries = List.of(
+                admissionCharge(1000),
+                payment,
+                LedgerEntry.reversal(nextEntryId(), payment));
+
+        FeeSummaryProjector projector = new FeeSummaryProjector();
+        projector.skipReversed(entries);
+        entries.forEach(entry -> assertThat(projector.apply(entry)).isTrue());
+
+        StudentFeeSummary summary = projector.finish(NOW);
+        assertThat(summary.getMonthlyFees()).isEmpty();
+        assertThat(summary.getTotalPaidAmount()).isNull();
+        assertThat(summary.getLastPaymentDate()).isNull();
+    }
+
+    @Test
+    void reversalOfAPaymentNotInTheReplayIsAnOrphan() {
+        LedgerEntry payment = monthPayment("P1", 6, 2026, 80, 200.0);
+        LedgerEntry reversal = LedgerEntry.reversal(nextEntryId(), payment);
+
+        FeeSummaryProjector projector = new FeeSummaryProjector();
+        projector.skipReversed(List.of(reversal));
+        assertThat(projector.apply(reversal)).isFalse();
+    }
+
+    @Test
+    void replayFromASnapshotMatchesAFullReplay() {
+        List<LedgerEntry> entries = List.of(
+                admissionCharge(1000),
+                monthCharge(1, 2026, 200),
+                monthPayment("P1", 1, 2026, 120, null),
+                adjustment(Payment.PaymentType.MONTHLY, "01-2026", -20),
+                monthPayment("P2", 1, 2026, 100, null),
+                admissionPayment("P3", 400),
+                annualPayment("P4", 2026, 300, 500.0));
+
+        for (int cut = 1; cut < entries.size(); cut++) {
+            FeeSummaryProjector first = new FeeSummaryProjector();
+            entries.subList(0, cut).forEach(first::apply);
+            FeeSummarySnapshot snapshot = first.toSnapshot(STUDENT, entries.get(cut - 1).getEntryId(), NOW);
+
+            // Replay goes on after the snapshot was taken; a snapshot sharing fee entries
+            // with it would be resumed with those later payments already applied
+            entries.subList(cut, entries.size()).forEach(first::apply);
+
+            FeeSummaryProjector resumed = new FeeSummaryProjector(snapshot);
+            entries.subList(cut, entries.size()).forEach(resumed::apply);
+
+            assertThat(FeeSummaryProjector.sameBalances(first.finish(NOW), resumed.finish(NOW)))
+                    .as("snapshot after entry %d", cut)
+                    .isTrue();
+        }
+    }
+
+    @Test
+    void finishDerivesStatusesAndNextDueDate() {
+        FeeSummaryProjector projector = replay(
+                admissionCharge(1000),
+                admissionPayment("P1", 1000),
+                monthCharge(1, 2026, 200),                // due Jan 5, unpaid
+                monthCharge(2, 2026, 200),
+                monthPayment("P2", 2, 2026, 200, null),   // paid in full
+                monthCharge(4, 2026, 200),
+                monthPayment("P3", 4, 2026, 50, null),    // due Apr 5, partly paid
+                monthCharge(5, 2026, 200),                // due May 5, unpaid
+                annualCharge(2026, 500));                 // due Jan 31, unpaid
+
+        StudentFeeSummary summary = projector.finish(NOW);
+        assertThat(summary.getMonthlyFees().get("01-2026").getStatus()).isEqualTo("OVERDUE");
+        assertThat(summary.getMonthlyFees().get("02-2026").getStatus()).isEqualTo("PAID");
+        assertThat(summary.getMonthlyFees().get("04-2026").getStatus()).isEqualTo("PARTIAL");
+        assertThat(summary.getMonthlyFees().get("05-2026").getStatus()).isEqualTo("PENDING");
+        assertThat(summary.getAnnualFees().get("2026").getStatus()).isEqualTo("OVERDUE");
+        // OVERDUE entries are already flagged; the next one still to come due is April's
+        assertThat(summary.getNextDueDate()).isEqualTo(LocalDateTime.of(2026, 4, 5, 0, 0));
+        assertThat(summary.getAdmissionFeeCompleted()).isTrue();
+    }
+
+    @Test
+    void nothingUnpaidLeavesNoNextDueDate() {
+        FeeSummaryProjector projector = replay(
+                admissionCharge(1000),
+                monthCharge(4, 2026, 200),
+                monthPayment("P1", 4, 2026, 200, null));
+
+        StudentFeeSummary summary = projector.finish(NOW);
+        assertThat(summary.getNextDueDate()).isNull();
+        assertThat(summary.getAdmissionFeeCompleted()).isFalse();
+    }
+
+    @Test
+    void liveBatchPaymentsAndLedgerReplayAgree() {
+        int year = LocalDate.now().getYear() + 1;  // Due dates ahead, so no entry is OVERDUE yet
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(1);
+        List<LedgerEntry> ledger = new ArrayList<>();
+        List<StudentFeeSummary> inserted = new ArrayList<>();
+
+        List<PaymentService.BatchItemResult> results = runBatch(ids, List.of(
+                request(Payment.PaymentType.ADMISSION, 400, null, null),
+                request(Payment.PaymentType.MONTHLY, 200, 4, year),
+                request(Payment.PaymentType.MONTHLY, 260, 5, year),   // overpaid by 60
+                request(Payment.PaymentType.ANNUAL, 100, null, year),
+                request(Payment.PaymentType.MONTHLY, 50, 13, year)),  // rejected on its own
+                null, true, ledger, inserted);
+
+        assertThat(results).extracting(PaymentService.BatchItemResult::getError)
+                .containsExactly(null, null, null, null, "Month must be between 1 and 12: 13");
+        assertThat(inserted).hasSize(1);
+        StudentFeeSummary live = inserted.get(0);
+
+        StudentFeeSummary projected = replay(ledger).finish(LocalDateTime.now());
+        assertThat(FeeSummaryProjector.sameBalances(live, projected)).isTrue();
+        assertThat(projected.getNextDueDate()).isEqualTo(live.getNextDueDate());
+        assertThat(projected.getTotalFeesAmount())
+                .isCloseTo(projected.getTotalPaidAmount() + projected.getTotalPendingAmount(), within(0.001));
+    }
+
+    @Test
+    void paymentsOfARejectedSummaryWriteAreReversed() {
+        int year = LocalDate.now().getYear() + 1;
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(1);
+        List<LedgerEntry> ledger = new ArrayList<>();
+        runBatch(ids, List.of(request(Payment.PaymentType.MONTHLY, 200, 4, year)),
+                null, true, ledger, new ArrayList<>());
+        List<LedgerEntry> firstBatch = List.copyOf(ledger);
+
+        // The summary changed on another node since the prefetch, so the version check rejects the write
+        StudentFeeSummary existing = replay(firstBatch).finish(LocalDateTime.now());
+        existing.setStudentId(STUDENT);
+        existing.setVersion(3L);
+        List<PaymentService.BatchItemResult> results = runBatch(ids, List.of(
+                request(Payment.PaymentType.MONTHLY, 100, 6, year),
+                request(Payment.PaymentType.ANNUAL, 100, null, year)),
+                existing, false, ledger, new ArrayList<>());
+
+        assertThat(results).allSatisfy(result -> assertThat(result.getError()).isNotNull());
+        assertThat(ledger).filteredOn(entry -> entry.getType() == LedgerEntry.EntryType.REVERSAL).hasSize(2);
+        assertThat(FeeSummaryProjector.sameBalances(
+                replay(firstBatch).finish(LocalDateTime.now()),
+                replay(ledger).finish(LocalDateTime.now())))
+                .isTrue();
+    }
+
+    // ============= HELPERS =============
+
+    /**
+     * Run a payment batch for STUDENT against mocked Mongo, collecting the ledger
+     * entries and inserted summaries it writes
+     */
+    private List<PaymentService.BatchItemResult> runBatch(SnowflakeIdGenerator ids,
+                                                          List<CreatePaymentRequest> requests,
+                                                          StudentFeeSummary existing, boolean summaryWritten,
+                                                          List<LedgerEntry> ledger,
+                                                          List<StudentFeeSummary> inserted) {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations ledgerOps = mock(BulkOperations.class);
+        BulkOperations summaryOps = mock(BulkOperations.class);
+        BulkOperations paymentOps = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(LedgerEntry.class))).thenReturn(ledgerOps);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(StudentFeeSummary.class)))
+                .thenReturn(summaryOps);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Payment.class))).thenReturn(paymentOps);
+
+        when(ledgerOps.insert(any(Object.class))).thenAnswer(invocation -> {
+            ledger.add(invocation.getArgument(0));
+            return ledgerOps;
+        });
+        when(summaryOps.insert(any(Object.class))).thenAnswer(invocation -> {
+            inserted.add(invocation.getArgument(0));
+            return summaryOps;
+        });
+        BulkWriteResult summaryResult = mock(BulkWriteResult.class);
+        when(summaryResult.getInsertedCount()).thenReturn(summaryWritten && existing == null ? 1 : 0);
+        when(summaryResult.getMatchedCount()).thenReturn(summaryWritten && existing != null ? 1 : 0);
+        when(summaryOps.execute()).thenReturn(summaryResult);
+        BulkWriteResult otherResult = mock(BulkWriteResult.class);
+        when(ledgerOps.execute()).thenReturn(otherResult);
+        when(paymentOps.execute()).thenReturn(otherResult);
+
+        Students student = new Students();
+        student.setStudentId(STUDENT);
+        student.setFullName("Test Student");
+        student.setClassName("5A");
+        StudentService studentService = mock(StudentService.class);
+        when(studentService.getStudentsByStudentIds(any())).thenReturn(Map.of(STUDENT, student));
+
+        FeeStructure feeStructure = new FeeStructure();
+        feeStructure.setClassName("5A");
+        feeStructure.setAdmissionFee(1000.0);
+        feeStructure.setMonthlyFee(200.0);
+        feeStructure.setAnnualFee(500.0);
+        FeeStructureCache feeStructureCache = mock(FeeStructureCache.class);
+        when(feeStructureCache.getActive(anyString())).thenReturn(Optional.of(feeStructure));
+
+        StudentFeeSummaryRepository feeSummaryRepository = mock(StudentFeeSummaryRepository.class);
+        when(feeSummaryRepository.findByStudentIdIn(any()))
+                .thenReturn(existing != null ? List.of(existing) : List.of());
+
+        PaymentService paymentService = new PaymentService(
+                mock(PaymentRepository.class),
+                studentService,
+                feeStructureCache,
+                feeSummaryRepository,
+                mongoTemplate,
+                mock(RevenueRollupService.class),
+                new LedgerService(mongoTemplate, ids),
+                new UuidIdGenerator());
+        return paymentService.processPaymentBatch(requests, "admin");
+    }
+
+    private FeeSummaryProjector replay(LedgerEntry... entries) {
+        return replay(List.of(entries));
+    }
+
+    private FeeSummaryProjector replay(List<LedgerEntry> entries) {
+        List<LedgerEntry> ordered = new ArrayList<>(entries);
+        ordered.sort(Comparator.comparing(LedgerEntry::getEntryId));
+        FeeSummaryProjector projector = new FeeSummaryProjector();
+        projector.skipReversed(ordered);
+        ordered.forEach(entry -> assertThat(projector.apply(entry)).as(entry.getId()).isTrue());
+        return projector;
+    }
+
+    private CreatePaymentRequest request(Payment.PaymentType type, double amount, Integer month, Integer year) {
+        return CreatePaymentRequest.builder()
+                .studentId(STUDENT)
+                .paymentType(type)
+                .amountPaid(amount)
+                .paymentMethod(Payment.PaymentMethod.CASH)
+                .month(month)
+                .year(year)
+                .build();
+    }
+
+    private String nextEntryId() {
+        return String.format("E%04d", ++sequence);
+    }
+
+    private LedgerEntry admissionCharge(double fee) {
+        return LedgerEntry.charge(nextEntryId(), STUDENT, Payment.PaymentType.ADMISSION, null, fee, null);
+    }
+
+    private LedgerEntry monthCharge(int month, int year, double fee) {
+        return LedgerEntry.charge(nextEntryId(), STUDENT, Payment.PaymentType.MONTHLY,
+                StudentFeeSummary.monthKey(month, year), fee, LocalDateTime.of(year, month, 5, 0, 0));
+    }
+
+    private LedgerEntry annualCharge(int year, double fee) {
+        return LedgerEntry.charge(nextEntryId(), STUDENT, Payment.PaymentType.ANNUAL,
+                String.valueOf(year), fee, LocalDateTime.of(year, 1, 31, 0, 0));
+    }
+
+    private LedgerEntry admissionPayment(String paymentId, double amount) {
+        return LedgerEntry.payment(nextEntryId(), payment(paymentId, Payment.PaymentType.ADMISSION, amount),
+                null, null);
+    }
+
+    private LedgerEntry monthPayment(String paymentId, int month, int year, double amount, Double fee) {
+        return LedgerEntry.payment(nextEntryId(), payment(paymentId, Payment.PaymentType.MONTHLY, amount),
+                StudentFeeSummary.monthKey(month, year),
+                fee != null ? StudentFeeSummary.MonthlyFeeDetail.unpaid(fee, year, month) : null);
+    }
+
+    private LedgerEntry annualPayment(String paymentId, int year, double amount, Double fee) {
+        return LedgerEntry.payment(nextEntryId(), payment(paymentId, Payment.PaymentType.ANNUAL, amount),
+                String.valueOf(year), fee != null ? StudentFeeSummary.AnnualFeeDetail.unpaid(fee, year) : null);
+    }
+
+    private LedgerEntry adjustment(Payment.PaymentType feeType, String period, double amount) {
+        return LedgerEntry.adjustment(nextEntryId(), STUDENT, feeType, period, amount, "test", "admin");
+    }
+
+    private Payment payment(String paymentId, Payment.PaymentType type, double amount) {
+        Payment payment = new Payment();
+        payment.setPaymentId(paymentId);
+        payment.setStudentId(STUDENT);
+        payment.setPaymentType(type);
+        payment.setAmountPaid(amount);
+        payment.setCreatedBy("admin");
+        return payment;
+    }
+}
@@ -0,0 +1,134 @@
+package com.studentmanagement.system.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * S3BlobStore against a real S3-compatible server; skipped unless S3_TEST_ENDPOINT is set.
+ * With a local MinIO container:
+ * docker run -p 9000:9000 minio/minio server /data
+ * S3_TEST_ENDPOINT=http://localhost:9000 S3_TEST_ACCESS_KEY=minioadmin S3_TEST_SECRET_KEY=minioadmin mvn test
+ */
+@EnabledIfEnvironmentVariable(named = "S3_TEST_ENDPOINT", matches = ".+")
+class S3BlobStoreIntegrationTest {
+
+    private S3BlobStore store;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        // Each run works under its own prefix so runs against a shared bucket do not collide
+        prefix = "it-" + UUID.randomUUID() + "/";
+        store = new S3BlobStore(
+                env("S3_TEST_BUCKET", "student-images-test"),
+                env("S3_TEST_REGION", "us-east-1"),
+                System.getenv("S3_TEST_ENDPOINT"),
+                true,
+                env("S3_TEST_ACCESS_KEY", ""),
+                env("S3_TEST_SECRET_KEY", ""),
+                prefix,
+                true);
+        store.checkBucket();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        List<String> keys = new ArrayList<>();
+        store.list("", blob -> keys.add(blob.key()));
+        for (String key : keys) {
+            store.delete(key);
+        }
+        store.destroy();
+    }
+
+    @Test
+    void putStatOpenAndDelete() throws IOException {
+        store.put("ab/cd/blob.jpg", staging("hello world"), "image/jpeg");
+
+        Optional<BlobInfo> info = store.stat("ab/cd/blob.jpg");
+        assertThat(info).isPresent();
+        assertThat(info.get().size()).isEqualTo(11);
+        assertThat(info.get().contentType()).isEqualTo("image/jpeg");
+        assertThat(read("ab/cd/blob.jpg", 0)).isEqualTo("hello world");
+        assertThat(read("ab/cd/blob.jpg", 6)).isEqualTo("world");
+
+        store.delete("ab/cd/blob.jpg");
+        assertThat(store.exists("ab/cd/blob.jpg")).isFalse();
+    }
+
+    @Test
+    void missingKeys() throws IOException {
+        assertThat(store.stat("missing.jpg")).isEmpty();
+        assertThat(store.exists("missing.jpg")).isFalse();
+        assertThatThrownBy(() -> store.open("missing.jpg", 0)).isInstanceOf(NoSuchFileException.class);
+        store.delete("missing.jpg");
+    }
+
+    @Test
+    void moveKeepsContentAndContentType() throws IOException {
+        store.put("from.png", staging("image bytes"), "image/png");
+
+        store.move("from.png", "to/moved.png");
+
+        assertThat(store.exists("from.png")).isFalse();
+        assertThat(store.stat("to/moved.png")).get()
+                .extracting(BlobInfo::contentType)
+                .isEqualTo("image/png");
+        assertThat(read("to/moved.png", 0)).isEqualTo("image bytes");
+    }
+
+    @Test
+    void moveOfAMissingKeyDoesNothing() throws IOException {
+        store.move("missing.png", "to/missing.png");
+
+        assertThat(store.exists("to/missing.png")).isFalse();
+    }
+
+    @Test
+    void listVisitsKeysUnderThePrefixAndStopsWhenAsked() throws IOException {
+        store.put("thumbnails/64/a.jpg", staging("a"), "image/jpeg");
+        store.put("thumbnails/64/b.jpg", staging("b"), "image/jpeg");
+        store.put("other/c.jpg", staging("c"), "image/jpeg");
+
+        List<String> keys = new ArrayList<>();
+        assertThat(store.list("thumbnails/", blob -> keys.add(blob.key()))).isTrue();
+        assertThat(keys).containsExactlyInAnyOrder("thumbnails/64/a.jpg", "thumbnails/64/b.jpg");
+
+        List<String> first = new ArrayList<>();
+        assertThat(store.list("", blob -> !first.add(blob.key()))).isFalse();
+        assertThat(first).hasSize(1);
+    }
+
+    private Path staging(String content) throws IOException {
+        Path file = store.createStagingFile();
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private String read(String key, long offset) throws IOException {
+        try (InputStream in = store.open(key, offset)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+}
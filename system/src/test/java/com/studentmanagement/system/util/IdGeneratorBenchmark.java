@@ -0,0 +1,76 @@
+package com.studentmanagement.system.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payment ID generation: the former 8-hex-character UUID prefix against the
+ * snowflake and full UUID generators, single-threaded and with 8 threads.
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.studentmanagement.system.util.IdGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator snowflake = new SnowflakeIdGenerator(1);
+    private final IdGenerator uuid = new UuidIdGenerator();
+
+    @Benchmark
+    public String uuidPrefix() {
+        return "PAY-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return "PAY-" + snowflake.nextId();
+    }
+
+    @Benchmark
+    public String uuid() {
+        return "PAY-" + uuid.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidPrefixContended() {
+        return uuidPrefix();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String snowflakeContended() {
+        return snowflake();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidContended() {
+        return uuid();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IdGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
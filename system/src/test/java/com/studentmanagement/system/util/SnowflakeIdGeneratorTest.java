@@ -0,0 +1,87 @@
+package com.studentmanagement.system.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = SnowflakeIdGenerator.EPOCH_MILLIS + 86_400_000L;
+
+    @Test
+    void idsKeepIncreasingWhenTheClockStepsBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, clock::get);
+
+        long beforeStep = generator.nextLong();
+        clock.set(NOW - 5_000);
+        long afterStep = generator.nextLong();
+        long later = generator.nextLong();
+        assertThat(afterStep).isGreaterThan(beforeStep);
+        assertThat(later).isGreaterThan(afterStep);
+
+        // Once the clock is past the borrowed time again, IDs follow it
+        clock.set(NOW + 1_000);
+        long caughtUp = generator.nextLong();
+        assertThat(caughtUp).isGreaterThan(later);
+        assertThat(millisOf(caughtUp)).isEqualTo(NOW + 1_000);
+    }
+
+    @Test
+    void sequenceOverflowBorrowsTheNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, () -> NOW);
+        int perMillisecond = 1 << SnowflakeIdGenerator.SEQUENCE_BITS;
+
+        Set<Long> seen = new HashSet<>();
+        long previous = -1;
+        for (int i = 0; i < perMillisecond * 3; i++) {
+            long id = generator.nextLong();
+            assertThat(id).isGreaterThan(previous);
+            assertThat(id & SnowflakeIdGenerator.MAX_NODE_ID).isEqualTo(7);
+            seen.add(id);
+            previous = id;
+        }
+        assertThat(seen).hasSize(perMillisecond * 3);
+        assertThat(millisOf(previous)).isEqualTo(NOW + 2);
+    }
+
+    @Test
+    void stringOrderMatchesNumericOrder() {
+        Random random = new Random(42);
+        List<Long> ids = new ArrayList<>();
+        ids.add(0L);
+        ids.add(Long.MAX_VALUE);
+        for (int i = 0; i < 10_000; i++) {
+            ids.add((random.nextLong() & Long.MAX_VALUE) >>> random.nextInt(63));  // IDs are positive
+        }
+
+        List<Long> byNumber = new ArrayList<>(ids);
+        byNumber.sort(Long::compare);
+        List<Long> byString = new ArrayList<>(ids);
+        byString.sort((a, b) -> SnowflakeIdGenerator.encode(a).compareTo(SnowflakeIdGenerator.encode(b)));
+
+        assertThat(byString).isEqualTo(byNumber);
+        assertThat(SnowflakeIdGenerator.encode(Long.MAX_VALUE)).hasSize(13);
+    }
+
+    @Test
+    void nodeIdOutOfRangeIsRejected() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long millisOf(long id) {
+        return (id >>> (SnowflakeIdGenerator.NODE_BITS + SnowflakeIdGenerator.SEQUENCE_BITS))
+                + SnowflakeIdGenerator.EPOCH_MILLIS;
+    }
+}